@@ -0,0 +1,50 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * Decodes a black box file on a computer, and prints it as comma separated 
+ * values. Copy blackbox.bin off the cRIO with FTP first. 
+ * 
+ * This is in the desktop folder rather than src, as it uses FileInputStream,
+ * which the cRIO doesn't have. Build it with "ant desktop", and run it with
+ * (for example):
+ * 
+ *   java -cp build/desktop edu.wpi.first.wpilibj.templates.DecodeTelemetry blackbox.bin > match.csv
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class DecodeTelemetry 
+{
+    /**
+     * Decodes a black box file and prints it to the console.
+     * @param args the file name
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 1)
+        {
+            System.err.println("Usage: DecodeTelemetry <blackbox.bin>");
+            System.exit(2);
+        }
+        
+        InputStream in = new BufferedInputStream(new FileInputStream(args[0]));
+        
+        try
+        {
+            TelemetryDecoder.decode(in, System.out);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
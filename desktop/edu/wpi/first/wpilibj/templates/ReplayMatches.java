@@ -0,0 +1,96 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Replays recorded matches through MatchReplay on a computer, so a library 
+ * of black box files can be used as regression tests. Each argument is a 
+ * black box file, or a folder - every .bin file in a folder is replayed, in
+ * name order. With no arguments, a simulated match is played and replayed 
+ * instead. Each black box file has the configuration the robot used in it,
+ * so there is no need for the robot.cfg it was running at the time.
+ * 
+ * This is in the desktop folder rather than src, as it uses FileInputStream,
+ * which the cRIO doesn't have. Build it with "ant desktop", and run it with
+ * (for example):
+ * 
+ *   java -cp build/desktop edu.wpi.first.wpilibj.templates.ReplayMatches matches/
+ * 
+ * It exits with 1 if any replay doesn't match, so it can be used in a script.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class ReplayMatches 
+{
+    /**
+     * Replays each file, or each file in each folder, given.
+     * @param args the files and folders
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int failed = 0;
+        
+        if (args.length == 0)
+        {
+            failed += MatchReplay.replaySimulatedMatch();
+        }
+        
+        for (int i = 0; i < args.length; i++)
+        {
+            File file = new File(args[i]);
+            
+            if (file.isDirectory())
+            {
+                File[] files = file.listFiles(new FilenameFilter()
+                {
+                    public boolean accept(File folder, String name)
+                    {
+                        return name.endsWith(".bin");
+                    }
+                });
+                
+                Arrays.sort(files);
+                
+                for (int j = 0; j < files.length; j++)
+                {
+                    failed += replay(files[j]);
+                }
+            }
+            else
+            {
+                failed += replay(file);
+            }
+        }
+        
+        System.out.println(failed == 0 ? "All replays match" : failed + " replays failed");
+        System.exit(failed == 0 ? 0 : 1);
+    }
+    
+    /**
+     * Replays one file.
+     * @param file the black box file
+     * @return 1 if it failed, 0 if it matched
+     */
+    private static int replay(File file) throws IOException
+    {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        
+        try
+        {
+            return MatchReplay.replay(file.getPath(), in);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * AirSupply looks after the compressor, and keeps track of roughly how much
+ * air is left in the tanks. All we have is the pressure switch, which only
+ * says whether the tanks are full, so the rest is an estimate: each BAS move
+ * and catapult shot uses a set amount of air (from the configuration), and
+ * the compressor puts it back at a set rate while it runs. Whenever the
+ * pressure switch says the tanks are full, the estimate goes back to 100%.
+ * 
+ * The compressor draws a lot of current, which the drive motors could use.
+ * So while the drivers are speeding up or slowing down hard, the compressor
+ * is paused (and for a moment after). It is never paused if there isn't
+ * enough air left for the next shot - lowering the BAS and firing.
+ * 
+ * start() and stop() are called at the start and end of each mode, and
+ * update() every control loop, after the motors have been set. The
+ * compressor's own pressure switch handling still stops it once the tanks
+ * are full. The pressure switch is read once per loop with the reed 
+ * switches, in the sensor snapshot, so each update sees one value.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class AirSupply
+{
+    public static final double FULL = 100.0;    // Percent
+    
+    private Robot robot;                // Reference to the main robot class
+    private Hardware.CompressorOutput compressor;
+    private int pressureSwitch;         // Sensor mask - on when full
+    
+    private double air = FULL;          // Estimated air left (percent)
+    private boolean enabled = false;    // Between start() and stop()
+    private boolean running = false;    // Whether the compressor is on
+    private boolean low = false;        // Not enough air for the next shot
+    
+    // Drive power at the last update, to see how fast it is changing.
+    private double lastLeft = 0.0;
+    private double lastRight = 0.0;
+    private long lastTime = -1;         // When the last update was (us)
+    private long pauseUntil = 0;        // Paused until this time (us)
+    
+    // Counts, for the summary
+    private int basStrokes = 0;
+    private int shots = 0;
+    private int pauses = 0;
+    private long pausedTime = 0;        // Time spent paused (us)
+    
+    /**
+     * Constructor. Creates the compressor, using the ports in the
+     * configuration.
+     * @param robot the main robot class
+     */
+    public AirSupply(Robot robot)
+    {
+        this.robot = robot;
+        
+        Configuration configuration = robot.getConfiguration();
+        
+        this.compressor = robot.getHardware().createCompressor(
+                configuration.getCompressorSwitch(), configuration.getCompressorRelay());
+        this.pressureSwitch = robot.getSensors().add(this.compressor.getPressureSwitch(),
+                "pressure switch");
+    }
+    
+    /**
+     * Lets the compressor run. Called at the start of each mode.
+     */
+    public void start()
+    {
+        this.enabled = true;
+        this.lastTime = -1;
+        this.pauseUntil = 0;
+        this.setRunning(true);
+    }
+    
+    /**
+     * Stops the compressor. Called at the end of each mode.
+     */
+    public void stop()
+    {
+        this.enabled = false;
+        this.setRunning(false);
+    }
+    
+    /**
+     * Records that the BAS has been told to move.
+     */
+    public void useBASStroke()
+    {
+        this.air -= this.robot.getConfiguration().getBASStrokeAir();
+        this.basStrokes++;
+    }
+    
+    /**
+     * Records that the catapult has fired.
+     */
+    public void useShot()
+    {
+        this.air -= this.robot.getConfiguration().getCatapultShotAir();
+        this.shots++;
+    }
+    
+    /**
+     * Updates the air estimate, and decides whether the compressor should be
+     * running. Call this every control loop, after the motors have been set.
+     */
+    public void update()
+    {
+        Configuration configuration = this.robot.getConfiguration();
+        DriveBase driveBase = this.robot.getDriveBase();
+        long now = this.robot.getHardware().getTime();
+        boolean full = this.robot.getSensors().isSet(this.pressureSwitch);
+        
+        double left = driveBase.getLeftOutput();
+        double right = driveBase.getRightOutput();
+        
+        if (this.lastTime >= 0 && now > this.lastTime)
+        {
+            double dt = (now - this.lastTime) / 1000000.0;
+            
+            // Top the estimate up for the time the compressor was running.
+            if (this.running && full == false)
+            {
+                this.air += configuration.getCompressorFillRate() * dt;
+            }
+            
+            // Speeding up or slowing down hard - pause (or stay paused).
+            double change = Math.max(Math.abs(left - this.lastLeft),
+                    Math.abs(right - this.lastRight)) / dt;
+            
+            if (change >= configuration.getCompressorPauseAcceleration())
+            {
+                this.pauseUntil = now + configuration.getCompressorPauseTime() * 1000L;
+            }
+            
+            if (this.running == false && this.enabled)
+            {
+                this.pausedTime += now - this.lastTime;
+            }
+        }
+        
+        if (full)
+        {
+            this.air = FULL;
+        }
+        
+        this.air = Math.max(0.0, Math.min(FULL, this.air));
+        
+        this.lastLeft = left;
+        this.lastRight = right;
+        this.lastTime = now;
+        
+        // Enough for the next shot? If not, the compressor can't be paused.
+        double reserve = configuration.getBASStrokeAir() + configuration.getCatapultShotAir();
+        boolean low = this.air < reserve;
+        
+        if (low && this.low == false)
+        {
+            this.robot.feedback("Air low - about " + (int) this.air + "% left");
+        }
+        
+        this.low = low;
+        
+        if (this.enabled)
+        {
+            boolean pause = now < this.pauseUntil && low == false;
+            
+            if (pause && this.running)
+            {
+                this.pauses++;
+            }
+            
+            this.setRunning(pause == false);
+        }
+    }
+    
+    /**
+     * Turns the compressor on or off, if it isn't already.
+     * @param running true to turn it on
+     */
+    private void setRunning(boolean running)
+    {
+        if (running != this.running || running != this.compressor.enabled())
+        {
+            this.running = running;
+            
+            if (running)
+            {
+                this.compressor.start();
+            }
+            else
+            {
+                this.compressor.stop();
+            }
+        }
+    }
+    
+    /**
+     * Returns how much air was used and how often the compressor was paused.
+     * @return the summary
+     */
+    public String getSummary()
+    {
+        return "Air: " + this.basStrokes + " BAS moves, " + this.shots + " shots, about "
+                + (int) this.air + "% left, compressor paused " + this.pauses
+                + " times (" + (this.pausedTime / 1000) + "ms)";
+    }
+    
+    // Accessors
+    public Hardware.CompressorOutput getCompressor() { return this.compressor; }
+    public int getPressureSwitch() { return this.pressureSwitch; }
+    public double getAir() { return this.air; }
+    public boolean isLow() { return this.low; }
+    public boolean isRunning() { return this.running; }
+}
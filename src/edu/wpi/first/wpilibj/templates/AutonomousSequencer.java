@@ -0,0 +1,311 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * Runs autonomous as a list of steps, rather than one long method that waits
+ * for each thing to finish. update() is called once per control loop and
+ * moves things along, so it never ties up the CPU.
+ * 
+ * Steps are run one after the other. A step added with addParallel() runs at
+ * the same time as the step before it (for example, lowering the BAS while
+ * driving), and the sequencer moves on once all of them have finished. If a
+ * step takes longer than its timeout, it is stopped and its fallback is run
+ * instead - if it has none, the sequencer just moves on.
+ * 
+ * How long each step took is kept, so it can be checked after the match.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class AutonomousSequencer
+{
+    // What happened to each step
+    public static final int WAITING = 0;    // Not started yet
+    public static final int RUNNING = 1;    // Started, not finished
+    public static final int DONE = 2;       // Finished by itself
+    public static final int TIMED_OUT = 3;  // Ran out of time
+    public static final int CANCELLED = 4;  // Autonomous was cut short
+    
+    private static final String[] RESULT_NAMES =
+    {
+        "waiting", "running", "done", "timed out", "cancelled"
+    };
+    
+    private Robot robot;                // Reference to the main robot class
+    
+    // The steps. These are kept in arrays, so that nothing needs to be
+    // created while autonomous is running.
+    private AutonomousStep[] steps;     // The steps, in order
+    private AutonomousStep[] active;    // The step (or its fallback) running
+    private boolean[] parallel;         // Runs alongside the step before it
+    private long[] startTime;           // When each step started (us)
+    private long[] stepTime;            // How long each step took (us)
+    private int[] result;               // What happened to each step
+    private int count = 0;              // Number of steps
+    
+    private int groupStart = 0;         // First step that is running
+    private int groupEnd = 0;           // One past the last step running
+    private long sequenceStart = 0;     // When the sequence started (us)
+    private boolean finished = true;    // True once every step is done
+    
+    /**
+     * Constructor.
+     * @param robot the main robot class
+     * @param capacity the most steps that can be added
+     */
+    public AutonomousSequencer(Robot robot, int capacity)
+    {
+        this.robot = robot;
+        
+        this.steps = new AutonomousStep[capacity];
+        this.active = new AutonomousStep[capacity];
+        this.parallel = new boolean[capacity];
+        this.startTime = new long[capacity];
+        this.stepTime = new long[capacity];
+        this.result = new int[capacity];
+    }
+    
+    /**
+     * Removes all of the steps.
+     */
+    public void clear()
+    {
+        for (int i = 0; i < this.count; i++)
+        {
+            this.steps[i] = null;
+            this.active[i] = null;
+        }
+        
+        this.count = 0;
+        this.finished = true;
+    }
+    
+    /**
+     * Adds a step that starts once everything before it has finished.
+     * @param step the step to add
+     */
+    public void add(AutonomousStep step)
+    {
+        this.addStep(step, false);
+    }
+    
+    /**
+     * Adds a step that runs at the same time as the step added before it.
+     * @param step the step to add
+     */
+    public void addParallel(AutonomousStep step)
+    {
+        this.addStep(step, this.count > 0);
+    }
+    
+    /**
+     * Adds a step to the end of the list.
+     * @param step the step to add
+     * @param parallel true to run it alongside the step before
+     */
+    private void addStep(AutonomousStep step, boolean parallel)
+    {
+        if (this.count == this.steps.length)
+        {
+            throw new IllegalStateException("Too many autonomous steps");
+        }
+        
+        this.steps[this.count] = step;
+        this.parallel[this.count] = parallel;
+        this.count++;
+    }
+    
+    /**
+     * Starts the sequence from the first step.
+     */
+    public void start()
+    {
+        for (int i = 0; i < this.count; i++)
+        {
+            this.active[i] = this.steps[i];
+            this.result[i] = WAITING;
+            this.startTime[i] = 0;
+            this.stepTime[i] = 0;
+        }
+        
+        this.sequenceStart = this.robot.getHardware().getTime();
+        this.finished = false;
+        this.startGroup(0, this.sequenceStart);
+    }
+    
+    /**
+     * Moves the sequence along. Call this once per control loop.
+     * @return true once every step has finished
+     */
+    public boolean update()
+    {
+        if (this.finished)
+        {
+            return true;
+        }
+        
+        long now = this.robot.getHardware().getTime();
+        boolean groupDone = true;
+        
+        for (int i = this.groupStart; i < this.groupEnd; i++)
+        {
+            if (this.result[i] != RUNNING)
+            {
+                continue;
+            }
+            
+            AutonomousStep step = this.active[i];
+            
+            if (step.update(this.robot))
+            {
+                this.endStep(i, DONE, now);
+            }
+            
+            // Taking too long - stop it, and try the fallback if it has one.
+            else if (step.getTimeout() > 0
+                    && now - this.startTime[i] >= step.getTimeout() * 1000L)
+            {
+                step.stop(this.robot);
+                this.endStep(i, TIMED_OUT, now);
+                
+                if (step.getFallback() != null)
+                {
+                    this.active[i] = step.getFallback();
+                    this.startStep(i, now);
+                }
+            }
+            
+            if (this.result[i] == RUNNING)
+            {
+                groupDone = false;
+            }
+        }
+        
+        if (groupDone)
+        {
+            this.startGroup(this.groupEnd, now);
+        }
+        
+        return this.finished;
+    }
+    
+    /**
+     * Stops any steps that are still running. Used when autonomous ends before
+     * the sequence has.
+     */
+    public void cancel()
+    {
+        if (this.finished)
+        {
+            return;
+        }
+        
+        long now = this.robot.getHardware().getTime();
+        
+        for (int i = this.groupStart; i < this.groupEnd; i++)
+        {
+            if (this.result[i] == RUNNING)
+            {
+                this.active[i].stop(this.robot);
+                this.endStep(i, CANCELLED, now);
+            }
+        }
+        
+        this.finished = true;
+    }
+    
+    /**
+     * Starts the group of steps beginning at first. That is, the step and
+     * every parallel step straight after it.
+     * @param first the first step in the group
+     * @param now the current time (us)
+     */
+    private void startGroup(int first, long now)
+    {
+        if (first >= this.count)
+        {
+            this.finished = true;
+            return;
+        }
+        
+        this.groupStart = first;
+        this.groupEnd = first + 1;
+        
+        while (this.groupEnd < this.count && this.parallel[this.groupEnd])
+        {
+            this.groupEnd++;
+        }
+        
+        for (int i = this.groupStart; i < this.groupEnd; i++)
+        {
+            this.startStep(i, now);
+        }
+    }
+    
+    /**
+     * Starts a single step.
+     * @param i the step
+     * @param now the current time (us)
+     */
+    private void startStep(int i, long now)
+    {
+        this.result[i] = RUNNING;
+        this.startTime[i] = now;
+        this.active[i].start(this.robot);
+    }
+    
+    /**
+     * Records that a step has finished, and lets the drivers know.
+     * @param i the step
+     * @param result how it finished
+     * @param now the current time (us)
+     */
+    private void endStep(int i, int result, long now)
+    {
+        this.result[i] = result;
+        this.stepTime[i] = now - this.startTime[i];
+        
+        this.robot.feedback("Auto: " + this.active[i].getName() + " "
+                + RESULT_NAMES[result] + " after "
+                + (this.stepTime[i] / 1000) + "ms");
+    }
+    
+    /**
+     * Returns a summary of each step and how long it took.
+     * @return the summary
+     */
+    public String getSummary()
+    {
+        StringBuffer summary = new StringBuffer("Auto steps:");
+        
+        for (int i = 0; i < this.count; i++)
+        {
+            summary.append(i == 0 ? " " : ", ");
+            summary.append(this.active[i].getName());
+            summary.append(' ');
+            summary.append(this.stepTime[i] / 1000);
+            summary.append("ms");
+            
+            if (this.result[i] != DONE)
+            {
+                summary.append(" (").append(RESULT_NAMES[this.result[i]]).append(')');
+            }
+        }
+        
+        return summary.toString();
+    }
+    
+    // Accessors
+    public boolean isFinished() { return this.finished; }
+    public int getStepCount() { return this.count; }
+    public AutonomousStep getStep(int i) { return this.active[i]; }
+    public long getStepTime(int i) { return this.stepTime[i]; }
+    public int getStepResult(int i) { return this.result[i]; }
+    public long getSequenceStart() { return this.sequenceStart; }
+}
@@ -0,0 +1,332 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * One step of autonomous, such as driving or shooting. Steps are run by the
+ * AutonomousSequencer. A step is started once, then updated every control
+ * loop until it says it is done. None of the methods should ever wait - if a
+ * step needs something to happen, it checks for it on the next update.
+ * 
+ * Every step has a timeout. If it isn't done in time, it is stopped and its
+ * fallback (if it has one) is run in its place. This means that a broken reed
+ * switch can't leave autonomous stuck forever.
+ * 
+ * The steps autonomous uses are kept in here as nested classes.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public abstract class AutonomousStep
+{
+    private String name;                // Used in the feedback
+    private int timeout;                // Milliseconds, 0 for none
+    private AutonomousStep fallback;    // Run if this step times out
+    
+    /**
+     * Constructor - sets the name and timeout of the step.
+     * @param name the name to use in feedback
+     * @param timeout how long it can take in milliseconds, or 0 for forever
+     */
+    public AutonomousStep(String name, int timeout)
+    {
+        this.name = name;
+        this.timeout = timeout;
+    }
+    
+    /**
+     * Called once when the step starts.
+     * @param robot the main robot class
+     */
+    public abstract void start(Robot robot);
+    
+    /**
+     * Called every control loop until it returns true.
+     * @param robot the main robot class
+     * @return true once the step has finished
+     */
+    public abstract boolean update(Robot robot);
+    
+    /**
+     * Called if the step timed out, or autonomous was cut short. By default
+     * this does nothing.
+     * @param robot the main robot class
+     */
+    public void stop(Robot robot)
+    {
+    }
+    
+    /**
+     * Sets a step to run instead if this one times out.
+     * @param fallback the step to run, or null for none
+     * @return this step, so it can be used straight away
+     */
+    public AutonomousStep setFallback(AutonomousStep fallback)
+    {
+        this.fallback = fallback;
+        return this;
+    }
+    
+    // Accessors
+    public String getName() { return this.name; }
+    public int getTimeout() { return this.timeout; }
+    public AutonomousStep getFallback() { return this.fallback; }
+    
+    /**
+     * Drives for a set time, using the DriveBase's timed drive.
+     */
+    public static class Drive extends AutonomousStep
+    {
+        private double speed;           // Power to drive at
+        private double time;            // Seconds to drive for
+        
+        /**
+         * Constructor.
+         * @param speed the power, between -1 and 1
+         * @param time the time to drive for in seconds
+         * @param timeout milliseconds before giving up
+         */
+        public Drive(double speed, double time, int timeout)
+        {
+            super("drive", timeout);
+            this.speed = speed;
+            this.time = time;
+        }
+        
+        public void start(Robot robot)
+        {
+            robot.getDriveBase().driveForward(this.speed, this.time);
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return robot.getDriveBase().update() == false;
+        }
+        
+        public void stop(Robot robot)
+        {
+            robot.getDriveBase().cancelDrive();
+        }
+    }
+    
+    /**
+     * Drives a set distance, using the encoders.
+     */
+    public static class DriveDistance extends AutonomousStep
+    {
+        private double distance;        // Metres to drive
+        private double speed;           // Most power to use
+        
+        /**
+         * Constructor.
+         * @param distance how far to go, in metres
+         * @param speed the most power to use, between 0 and 1
+         * @param timeout milliseconds before giving up
+         */
+        public DriveDistance(double distance, double speed, int timeout)
+        {
+            super("drive distance", timeout);
+            this.distance = distance;
+            this.speed = speed;
+        }
+        
+        public void start(Robot robot)
+        {
+            robot.getDriveBase().driveDistance(this.distance, this.speed);
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return robot.getDriveBase().update() == false;
+        }
+        
+        public void stop(Robot robot)
+        {
+            robot.getDriveBase().cancelDrive();
+        }
+    }
+    
+    /**
+     * Follows a motion profile, using the encoders.
+     */
+    public static class FollowProfile extends AutonomousStep
+    {
+        private MotionProfile profile;  // The profile to follow
+        
+        /**
+         * Constructor.
+         * @param profile the profile, already generated
+         * @param timeout milliseconds before giving up
+         */
+        public FollowProfile(MotionProfile profile, int timeout)
+        {
+            super("follow profile", timeout);
+            this.profile = profile;
+        }
+        
+        public void start(Robot robot)
+        {
+            robot.getDriveBase().followProfile(this.profile);
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return robot.getDriveBase().update() == false;
+        }
+        
+        public void stop(Robot robot)
+        {
+            robot.getDriveBase().cancelDrive();
+        }
+    }
+    
+    /**
+     * Lowers the BAS, and waits for the reed switch to say that it is down.
+     */
+    public static class LowerBAS extends AutonomousStep
+    {
+        /**
+         * Constructor.
+         * @param timeout milliseconds before giving up
+         */
+        public LowerBAS(int timeout)
+        {
+            super("lower BAS", timeout);
+        }
+        
+        public void start(Robot robot)
+        {
+            robot.getBAS().lower();
+        }
+        
+        public boolean update(Robot robot)
+        {
+            // Keep telling it to lower - this turns the solenoid off once it
+            // gets there.
+            robot.getBAS().lower();
+            return robot.getBAS().isLowered();
+        }
+    }
+    
+    /**
+     * Shoots the ball. The catapult won't fire until the BAS is lowered (and
+     * asks for it to be lowered if it isn't), so this keeps trying until it
+     * does.
+     */
+    public static class Shoot extends AutonomousStep
+    {
+        /**
+         * Constructor.
+         * @param timeout milliseconds before giving up
+         */
+        public Shoot(int timeout)
+        {
+            super("shoot", timeout);
+        }
+        
+        public void start(Robot robot)
+        {
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return robot.getCatapult().shoot();
+        }
+    }
+    
+    /**
+     * Waits for the catapult to come back in and be ready again. The Catapult
+     * retracts itself, so this just watches it.
+     */
+    public static class Retract extends AutonomousStep
+    {
+        /**
+         * Constructor.
+         * @param timeout milliseconds before giving up
+         */
+        public Retract(int timeout)
+        {
+            super("retract", timeout);
+        }
+        
+        public void start(Robot robot)
+        {
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return robot.getCatapult().isReady();
+        }
+        
+        public void stop(Robot robot)
+        {
+            // Make sure the piston is back in, even if the catapult doesn't
+            // think it is done.
+            robot.getCatapult().lower();
+        }
+    }
+    
+    /**
+     * Waits for the catapult to be down and ready to fire, before the first
+     * shot. If the reloaded switch is trusted, it waits for the switch to say
+     * the catapult is in. If the switch never does, it is marked as faulty 
+     * and the catapult's own timing is used instead - see 
+     * Catapult.checkReloaded().
+     */
+    public static class CatapultReady extends AutonomousStep
+    {
+        /**
+         * Constructor.
+         * @param timeout milliseconds before giving up
+         */
+        public CatapultReady(int timeout)
+        {
+            super("catapult ready", timeout);
+        }
+        
+        public void start(Robot robot)
+        {
+            // Make sure the piston isn't being held out.
+            robot.getCatapult().lower();
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return robot.getCatapult().checkReloaded();
+        }
+    }
+    
+    /**
+     * Just gives some feedback. Mostly useful as a fallback, so the drivers
+     * know what went wrong.
+     */
+    public static class Feedback extends AutonomousStep
+    {
+        private String message;         // What to say
+        
+        /**
+         * Constructor.
+         * @param message the feedback to give
+         */
+        public Feedback(String message)
+        {
+            super("feedback", 0);
+            this.message = message;
+        }
+        
+        public void start(Robot robot)
+        {
+            robot.feedback(this.message);
+        }
+        
+        public boolean update(Robot robot)
+        {
+            return true;
+        }
+    }
+}
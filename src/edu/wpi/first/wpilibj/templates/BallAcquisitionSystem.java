@@ -7,51 +7,81 @@
 
 package edu.wpi.first.wpilibj.templates;
 
-import edu.wpi.first.wpilibj.*;
-
 /**
  * BallPickerUppper handles the BAS. It lowers the bar down, starts the motor
  * and lifts it up once the ball is grabbed. The BAS will need to be lowered
  * to shoot.
  * 
+ * Whether it is up or down comes from two reed switches. If the sensor 
+ * snapshot decides they are faulty (both on at once, or not changing after
+ * the BAS is told to move), the BAS goes by time instead - it counts as moved
+ * once its solenoid has been on for the move time in the configuration.
+ * 
+ * Each move is timed, from the solenoid being switched to the reed switch
+ * first reading that it got there (before debouncing), so we can see how the
+ * pistons slow down as the air runs out. update() needs to be called every
+ * loop for this.
+ * 
  * @author adam.jenkins@unisa.edu.au
  * @version 1.0
  */
 public class BallAcquisitionSystem 
 {
-    private RobotMain robot;        // Reference to the main robot class
+    private Robot robot;            // Reference to the main robot class
     
-    private DigitalInput lowered;   // Reed switch that is true if the BAS is lowered
-    private DigitalInput raised;    // Reed switch that is true if the BAS is raised
+    // Reed switches. These are read once per loop by the SensorSnapshot, so
+    // we just keep the mask for each one.
+    private int lowered;            // Reed switch that is true if the BAS is lowered
+    private int raised;             // Reed switch that is true if the BAS is raised
+    
+    // Which way the BAS was last told to move, and when (microseconds). Only
+    // needed if the reed switches stop working.
+    private static final int NOT_MOVED = 0;
+    private static final int LOWERING = 1;
+    private static final int RAISING = 2;
+    private int moving = NOT_MOVED;
+    private long moveTime = 0;
+    
+    // How long each move takes.
+    private LatencyHistogram lowerTimes = new LatencyHistogram("BAS lower");
+    private LatencyHistogram raiseTimes = new LatencyHistogram("BAS raise");
+    private long moveLatency = 0;   // Move finished this loop (us), or 0
     
     // Normally we would use a double solenoid to do this, but that appeared
     // broken during testing. So this uses two single solenoids instead. The 
     // code should be careful to never turn both on.
-    private Solenoid pneumaticsLower; // Solenoid to raise or lower the BAS
-    private Solenoid pneumaticsRaise; // Solenoid to raise or lower the BAS
+    private Hardware.SolenoidOutput pneumaticsLower; // Solenoid to raise or lower the BAS
+    private Hardware.SolenoidOutput pneumaticsRaise; // Solenoid to raise or lower the BAS
     
     // The motor controller that drives the ball pickup system
-    private Victor roller;
+    private Hardware.MotorOutput roller;
     
     /**
      * Basic constructor. Records a reference to the main robot class, and
      * initialises the various components.
      * @param robot the main robot class
      */
-    public BallAcquisitionSystem(RobotMain robot)
+    public BallAcquisitionSystem(Robot robot)
     {
         this.robot = robot;
         
         // Set up the reed switches
-        this.lowered = new DigitalInput(this.robot.getConfiguration().getBASLowered());
-        this.raised = new DigitalInput(this.robot.getConfiguration().getBASRaised());
+        this.lowered = this.robot.getSensors().add(
+                this.robot.getHardware().createDigitalInput(this.robot.getConfiguration().getBASLowered()),
+                "BAS lowered");
+        this.raised = this.robot.getSensors().add(
+                this.robot.getHardware().createDigitalInput(this.robot.getConfiguration().getBASRaised()),
+                "BAS raised");
+        
+        // It can't be both up and down.
+        this.robot.getSensors().addExclusive(this.lowered, this.raised);
         
         // Set up the roller motor
-        this.roller = new Victor(this.robot.getConfiguration().getBASMotor());
+        this.roller = this.robot.getHardware().createVictor(this.robot.getConfiguration().getBASMotor());
         
         // Set up the pneumatics.
-        this.pneumaticsLower = new Solenoid(this.robot.getConfiguration().getBASDown());
-        this.pneumaticsRaise = new Solenoid(this.robot.getConfiguration().getBASUp());
+        this.pneumaticsLower = this.robot.getHardware().createSolenoid(this.robot.getConfiguration().getBASDown());
+        this.pneumaticsRaise = this.robot.getHardware().createSolenoid(this.robot.getConfiguration().getBASUp());
     }
     
     /**
@@ -88,6 +118,7 @@ public class BallAcquisitionSystem
             // relay.
             this.pneumaticsRaise.set(false);
             this.pneumaticsLower.set(true);
+            this.startMove(LOWERING, this.lowered, this.raised);
         }
         // If it is fully lowered, turn both off. Only one shoudl be necessary,
         // but there is no harm in making sure.
@@ -110,6 +141,7 @@ public class BallAcquisitionSystem
             this.pneumaticsLower.set(false);
             // ... turn on the lifting one.
             this.pneumaticsRaise.set(true);
+            this.startMove(RAISING, this.raised, this.lowered);
         }
         
         // If it is fully raised, turn off both solenoids.
@@ -151,41 +183,128 @@ public class BallAcquisitionSystem
         }
     }
     
+    /**
+     * Checks whether a move has finished, for the timing. Call this every
+     * control loop, after the sensors have been sampled.
+     */
+    public void update()
+    {
+        SensorSnapshot sensors = this.robot.getSensors();
+        long now = this.robot.getHardware().getTime();
+        
+        this.moveLatency = 0;
+        
+        if (this.lowerTimes.isTiming() && sensors.isRawSet(this.lowered))
+        {
+            this.moveLatency = this.lowerTimes.finish(now);
+        }
+        
+        if (this.raiseTimes.isTiming() && sensors.isRawSet(this.raised))
+        {
+            this.moveLatency = this.raiseTimes.finish(now);
+        }
+    }
+    
+    /**
+     * Returns the timing for one direction.
+     * @param direction LOWERING or RAISING
+     * @return the histogram
+     */
+    private LatencyHistogram getMoveTimes(int direction)
+    {
+        return (direction == LOWERING) ? this.lowerTimes : this.raiseTimes;
+    }
+    
+    /**
+     * Records which way the BAS has been told to move, and tells the sensor
+     * snapshot which way the reed switches should go. Called every loop while
+     * a solenoid is on, but only does anything when the direction changes.
+     * @param direction LOWERING or RAISING
+     * @param arriving the switch that should turn on
+     * @param leaving the switch that should turn off
+     */
+    private void startMove(int direction, int arriving, int leaving)
+    {
+        if (this.moving != direction)
+        {
+            this.moving = direction;
+            this.moveTime = this.robot.getHardware().getTime();
+            
+            // Start timing this way, and forget the other way if it never
+            // got there.
+            this.getMoveTimes(direction).start(this.moveTime);
+            this.getMoveTimes(LOWERING + RAISING - direction).cancel();
+            
+            this.robot.getAirSupply().useBASStroke();
+        }
+        
+        int timeout = this.robot.getConfiguration().getBASSwitchTimeout();
+        
+        this.robot.getSensors().expect(arriving, true, timeout);
+        this.robot.getSensors().expect(leaving, false, timeout);
+    }
+    
     /**
      * Returns whether or not the BAS is lowered. The BAS is lowered if  and 
      * only if, the reed switch for "lowered" is true, and the reed switch for
-     * "raised" is false. 
+     * "raised" is false. Both come from the same snapshot, so they can't 
+     * change between the two checks. If the switches are faulty, it is 
+     * lowered once it has been lowering for the move time.
      * @return is lowered
      */
     public boolean isLowered()
     { 
-        boolean isLowered = false;
-        
-        // Check to see if it is properly lowered
-        if (this.lowered.get() == true && this.raised.get() == false)
+        if (this.isHealthy() == false)
         {
-            isLowered = true;
+            return this.hasMoved(LOWERING);
         }
         
-        return isLowered;
+        return this.robot.getSensors().matches(this.lowered | this.raised, this.lowered);
     }
     
     /**
      * Returns whether or not the BAS is raised. The BAS is raised if, and 
      * only if, the reed switch for "raised" is true, and the reed switch for
-     * "lowered" is false. 
+     * "lowered" is false. If the switches are faulty, it is raised once it 
+     * has been raising for the move time.
      * @return is raised
      */
     public boolean isRaised()
     { 
-        boolean isRaised = false;
-        
-        // Check to see if it is properly raised
-        if (this.lowered.get() == false && this.raised.get() == true)
+        if (this.isHealthy() == false)
         {
-            isRaised = true;
+            return this.hasMoved(RAISING);
         }
         
-        return isRaised;
+        return this.robot.getSensors().matches(this.lowered | this.raised, this.raised);
     }
+    
+    /**
+     * Guesses whether the BAS has finished moving, from how long ago it was
+     * told to.
+     * @param direction LOWERING or RAISING
+     * @return true if it was told to move that way at least the move time ago
+     */
+    private boolean hasMoved(int direction)
+    {
+        return this.moving == direction && this.robot.getHardware().getTime() - this.moveTime
+                >= this.robot.getConfiguration().getBASMoveTime() * 1000L;
+    }
+    
+    /**
+     * Returns whether both reed switches can be trusted.
+     * @return true if neither is faulty
+     */
+    public boolean isHealthy()
+    {
+        return this.robot.getSensors().isHealthy(this.lowered | this.raised);
+    }
+    
+    // Accessors
+    public double getRollerSpeed() { return this.roller.get(); }
+    public boolean isLowerSolenoidOn() { return this.pneumaticsLower.get(); }
+    public boolean isRaiseSolenoidOn() { return this.pneumaticsRaise.get(); }
+    public LatencyHistogram getLowerTimes() { return this.lowerTimes; }
+    public LatencyHistogram getRaiseTimes() { return this.raiseTimes; }
+    public long getMoveLatency() { return this.moveLatency; }
 }
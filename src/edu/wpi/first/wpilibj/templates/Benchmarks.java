@@ -0,0 +1,312 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * Benchmarks times the code that runs every control loop - a whole teleop 
+ * tick, and the subsystem methods it calls - against simulated hardware, so 
+ * the numbers don't depend on what is plugged in. Run main() on a computer 
+ * to check that a change hasn't made the loop slower before it goes on the 
+ * robot.
+ * 
+ * Each benchmark is warmed up first, and then run in batches. The clock we 
+ * have (System.currentTimeMillis()) is too coarse to time a single call, so
+ * the number of calls per batch is doubled until a batch takes long enough to
+ * time, and each batch is timed as a whole and divided by the number of 
+ * calls. Everything a benchmark returns is added up, so that the compiler 
+ * can't decide the call isn't needed and skip it. 
+ * 
+ * The results are the throughput, the average time per call, the median and
+ * 99th percentile of the batch averages, and the memory allocated per call 
+ * (from Runtime.freeMemory(), so only a guide - the garbage collector can 
+ * run part way through a batch). 
+ * 
+ * The black box and the console both go to a stream that throws everything
+ * away. That way the recording and printing are still timed, but nothing 
+ * builds up in memory or fills the screen.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class Benchmarks 
+{
+    // How much work to do. The batch should take at least a few milliseconds
+    // for the timing to mean anything.
+    private static final int WARMUP_BATCHES = 20;
+    private static final int BATCHES = 100;
+    private static final long BATCH_TIME = 10;  // Milliseconds
+    
+    private Simulator simulator;        // The robot, on simulated hardware
+    private Robot robot;                // Shortcut to the simulator's robot
+    
+    // Results for one benchmark, kept here so they aren't allocated each time.
+    private long[] batchTimes = new long[BATCHES];  // Nanoseconds per call
+    
+    private long sink = 0;              // Everything the benchmarks return
+    
+    /**
+     * Somewhere to write that doesn't keep anything.
+     */
+    private static class NullOutputStream extends OutputStream
+    {
+        public void write(int b) { }
+        public void write(byte[] b, int off, int len) { }
+    }
+    
+    /**
+     * Something to time. run() is called over and over, and should return 
+     * something that depends on the work it did.
+     */
+    private abstract static class Benchmark
+    {
+        private String name;
+        
+        Benchmark(String name) { this.name = name; }
+        
+        abstract int run();
+    }
+    
+    /**
+     * Constructor. Sets up the robot in teleop, with the drivers pushing the
+     * sticks forward and holding the "retrieve ball" button, so that a tick
+     * does some real work. It runs until the BAS is down, so the catapult 
+     * can fire.
+     */
+    public Benchmarks()
+    {
+        this.simulator = new Simulator();
+        this.robot = this.simulator.getRobot();
+        
+        OutputStream nowhere = new NullOutputStream();
+        this.robot.getLogger().setConsole(new PrintStream(nowhere));
+        
+        try
+        {
+            this.robot.getRecorder().open(nowhere);
+        }
+        catch (IOException e)
+        {
+            // Can't happen - nothing is written anywhere.
+        }
+        
+        SimulatedHardware hardware = this.simulator.getHardware();
+        hardware.getJoystick(1).setY(-0.6);
+        hardware.getJoystick(2).setY(-0.4);
+        hardware.getJoystick(3).setButton(2, true);
+        
+        this.robot.startTeleop();
+        
+        for (int i = 0; i < 100 && this.robot.getBAS().isLowered() == false; i++)
+        {
+            this.robot.teleopTick();
+            this.simulator.step();
+        }
+    }
+    
+    /**
+     * Runs a benchmark and prints the results.
+     * @param benchmark the benchmark to run
+     */
+    private void measure(Benchmark benchmark)
+    {
+        Runtime runtime = Runtime.getRuntime();
+        
+        // Work out how many calls make a batch long enough to time, warm up,
+        // and then check again, as it is likely to have got faster.
+        int calls = this.calibrate(benchmark, 1);
+        
+        for (int b = 0; b < WARMUP_BATCHES; b++)
+        {
+            this.batch(benchmark, calls);
+        }
+        
+        calls = this.calibrate(benchmark, calls);
+        
+        long totalTime = 0;
+        long totalAllocated = 0;
+        
+        for (int b = 0; b < BATCHES; b++)
+        {
+            System.gc();
+            long freeBefore = runtime.freeMemory();
+            
+            long elapsed = this.batch(benchmark, calls);
+            
+            long allocated = freeBefore - runtime.freeMemory();
+            
+            // A negative number means the garbage collector ran; ignore it.
+            totalAllocated += Math.max(0, allocated);
+            totalTime += elapsed;
+            this.batchTimes[b] = (elapsed * 1000000) / calls;
+        }
+        
+        this.sort(this.batchTimes);
+        
+        long totalCalls = (long) BATCHES * calls;
+        long opsPerSecond = (totalTime > 0) ? (totalCalls * 1000) / totalTime : 0;
+        
+        System.out.println(this.pad(benchmark.name, 24)
+                + this.pad(opsPerSecond + " ops/s", 20)
+                + this.pad("avg " + (totalTime * 1000000) / totalCalls + "ns", 14)
+                + this.pad("p50 " + this.batchTimes[BATCHES / 2] + "ns", 14)
+                + this.pad("p99 " + this.batchTimes[(BATCHES * 99) / 100] + "ns", 14)
+                + (totalAllocated / totalCalls) + " B/op");
+    }
+    
+    /**
+     * Doubles the number of calls until a batch takes at least BATCH_TIME.
+     * @param calls the number of calls to start with
+     * @return the number of calls per batch
+     */
+    private int calibrate(Benchmark benchmark, int calls)
+    {
+        while (this.batch(benchmark, calls) < BATCH_TIME && calls < (1 << 30))
+        {
+            calls *= 2;
+        }
+        
+        return calls;
+    }
+    
+    /**
+     * Runs one batch.
+     * @param calls the number of times to call the benchmark
+     * @return the time taken, in milliseconds
+     */
+    private long batch(Benchmark benchmark, int calls)
+    {
+        long startTime = System.currentTimeMillis();
+        
+        for (int i = 0; i < calls; i++)
+        {
+            this.sink += benchmark.run();
+        }
+        
+        return System.currentTimeMillis() - startTime;
+    }
+    
+    /**
+     * Runs all of the benchmarks.
+     */
+    public void runAll()
+    {
+        final Robot robot = this.robot;
+        final Simulator simulator = this.simulator;
+        
+        this.measure(new Benchmark("teleopTick")
+        {
+            int run() { robot.teleopTick(); simulator.step(); return robot.getSensors().getState(); }
+        });
+        
+        this.measure(new Benchmark("BAS.isLowered")
+        {
+            int run() { return robot.getBAS().isLowered() ? 1 : 0; }
+        });
+        
+        // A whole shot: fire, and then run the catapult a loop at a time 
+        // until it is back down and ready to fire again.
+        this.measure(new Benchmark("Catapult shot cycle")
+        {
+            long period = robot.getConfiguration().getLoopPeriod() * 1000L;
+            
+            int run()
+            {
+                Catapult catapult = robot.getCatapult();
+                int ticks = 0;
+                
+                if (catapult.shoot() == false)
+                {
+                    throw new IllegalStateException("Catapult didn't fire");
+                }
+                
+                while (catapult.checkReloaded() == false && ticks < 1000)
+                {
+                    simulator.getHardware().advance(this.period);
+                    robot.getSensors().sample();
+                    catapult.update();
+                    ticks++;
+                }
+                
+                return ticks;
+            }
+        });
+        
+        this.measure(new Benchmark("DriveBase.Drive")
+        {
+            int run() { robot.getDriveBase().Drive(); return (int) (robot.getDriveBase().getLeftOutput() * 100); }
+        });
+        
+        this.measure(new Benchmark("Input.update")
+        {
+            int run() { robot.getInput().update(); return robot.getInput().getButtons(Input.CONTROL); }
+        });
+        
+        this.measure(new Benchmark("InputCurve.shape")
+        {
+            InputCurve curve = new InputCurve();
+            int call = 0;
+            
+            int run() { call++; return (int) (curve.shape((call % 200 - 100) / 100.0) * 100); }
+        });
+        
+        this.measure(new Benchmark("Robot.feedback")
+        {
+            int run() { robot.feedback("Benchmarking"); robot.getLogger().drain(); return 1; }
+        });
+    }
+    
+    /**
+     * Sorts the batch times (insertion sort - there are only a hundred).
+     */
+    private void sort(long[] values)
+    {
+        for (int i = 1; i < values.length; i++)
+        {
+            long value = values[i];
+            int j = i - 1;
+            
+            while (j >= 0 && values[j] > value)
+            {
+                values[j + 1] = values[j];
+                j--;
+            }
+            
+            values[j + 1] = value;
+        }
+    }
+    
+    /**
+     * Pads some text out with spaces, to line the results up.
+     */
+    private String pad(String text, int width)
+    {
+        StringBuffer padded = new StringBuffer(text);
+        
+        while (padded.length() < width)
+        {
+            padded.append(' ');
+        }
+        
+        return padded.toString();
+    }
+    
+    /**
+     * Runs the benchmarks.
+     * @param args not used
+     */
+    public static void main(String[] args)
+    {
+        Benchmarks benchmarks = new Benchmarks();
+        benchmarks.runAll();
+        
+        // Print the sink, so none of the work can be thrown away.
+        System.out.println("(" + benchmarks.sink + ")");
+    }
+}
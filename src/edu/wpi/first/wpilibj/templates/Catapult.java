@@ -7,28 +7,45 @@
 
 package edu.wpi.first.wpilibj.templates;
 
-import edu.wpi.first.wpilibj.*;
-
 /**
  * This is fairly self evident. It is the catapult, and it shoots the ball. Yay!
  * It will retract the catapult and fire it. Significantly, it will also have 
  * safety checks to confirm that everything is ready to go.
  * 
+ * Firing is a little state machine, moved along by update() every control 
+ * loop: IDLE (not fired yet) -> FIRING (piston out for the fire time) -> 
+ * RETRACTING (piston back in) -> READY. The catapult retracts by itself once
+ * the fire time is up, and can only be fired again from IDLE or READY. If the
+ * "reloaded" reed switch is trusted, it is READY as soon as the switch says 
+ * so; otherwise it waits for the retract time.
+ * 
+ * The piston is timed both ways - from firing to the reed switch turning off,
+ * and from retracting to it turning back on - so we can see how it slows
+ * down as the air runs out.
+ * 
  * @author adam.jenkins@unisa.edu.au
  * @version 1.0
  */
 public class Catapult 
 {
-    private RobotMain robot;                // Reference to the main robot class
+    // States
+    public static final int IDLE = 0;       // Hasn't fired since startup
+    public static final int FIRING = 1;     // Piston out
+    public static final int RETRACTING = 2; // Piston coming back in
+    public static final int READY = 3;      // Retracted, ready to fire again
+    
+    private Robot robot;                    // Reference to the main robot class
       
     // A reed switch that will be true if the catapult is down and ready to fire.
-    // The switch was broken when testing, so it is set but not used. If it works, 
-    // uncomment the code that checks it's status below.
-    private DigitalInput reloaded; 
+    // The switch was broken when testing, so it is only used while the 
+    // SensorSnapshot thinks it is healthy (and the configuration says to use
+    // it). Otherwise the retract time is used. It is read once per loop by the
+    // SensorSnapshot, so this is its mask.
+    private int reloaded; 
     
     // Solinoid that controls the piston. When set to true, the catapult will
     // fire. Setting to false should reload the catapult.
-    private Solenoid pneumatics;
+    private Hardware.SolenoidOutput pneumatics;
     
     // ignoreChecks. This should not be turned on. If it is true, it is possible
     // for the cataplut to fire with the BAS raised. It might be necessary to do
@@ -36,21 +53,22 @@ public class Catapult
     // confirmation of it's status before firing.
     private boolean ignoreChecks = false;  
     
-    // Time at which the catapult has fired need to wait 1 sec to lower.
-    private long start_time = 0;
-    
-    // Time conter since catapult has fired need to wait 1 sec to lower.
-    private long shoot_time = 0;
+    // Where the catapult is up to, and when it got there (microseconds).
+    private int state = IDLE;
+    private long stateTime = 0;
+    private long fireTime = -1;             // When it last fired, -1 if never
     
-    // Flag to lower the catapult
-    private boolean lower_catapult = true;
+    // How long the piston takes each way.
+    private LatencyHistogram fireTimes = new LatencyHistogram("Catapult fire");
+    private LatencyHistogram retractTimes = new LatencyHistogram("Catapult retract");
+    private long moveLatency = 0;           // Move finished this loop (us), or 0
     
     /**
      * Constructor for the catapult. Records the base robot class and sets up 
      * the relay switch and piston relay.
      * @param robot the base robot class.
      */
-    public Catapult(RobotMain robot)
+    public Catapult(Robot robot)
     {
         // Store the instance of the robot class.
         this.robot = robot;
@@ -58,42 +76,36 @@ public class Catapult
         // Set up the digitalinput for the relay switch and the solenoid for the
         // penumatics. In each case, grabe the ports from the Configuration
         // class.
-        this.reloaded = new DigitalInput(this.robot.getConfiguration().getCatapultReloaded());
-        this.pneumatics = new Solenoid(this.robot.getConfiguration().getCatapultPneumatics());
+        this.reloaded = this.robot.getSensors().add(
+                this.robot.getHardware().createDigitalInput(this.robot.getConfiguration().getCatapultReloaded()),
+                "catapult reloaded");
+        this.pneumatics = this.robot.getHardware().createSolenoid(this.robot.getConfiguration().getCatapultPneumatics());
     }
     
     /**
      * Fire the catapult. Only fire if the BAS is lowered. If it is not
-     * lowered, lower it before shooting.
+     * lowered, lower it before shooting. It also won't fire while it is still
+     * firing or retracting from the last shot.
      * @return if it did shoot
      */
     public boolean shoot()
     {
-        /*if (this.ignoreChecks || )
-        
-        
-        
-        */
         // Default to didn't shoot
         boolean didShoot = false;
         
+        // Still busy with the last shot, or not back down yet.
+        if (this.checkReloaded() == false)
+        {
+            return false;
+        }
+        
         if (this.ignoreChecks == false)
         {
             // Is the BAS raised? If it is, we can shoot.
             if(this.robot.getBAS().isLowered() == true)
             {
-                // Is the catapult set? As the reed switch was broken,
-                // this is commented out. If it works we should add it back in
-                // again.
-                //if (this.isLowered())
-                //{
-                    this.pneumatics.set(true);
-                    didShoot = true;
-                //}
-                //else
-                //{
-                //  this.robot.feedback("Catapult is not retracted");
-                //}
+                this.fire();
+                didShoot = true;
             }
         
             // If the BAS is not lowered, lower it ourselves.
@@ -106,7 +118,7 @@ public class Catapult
         // Alternative - just shoot. This is only to be used if desperate.
         else
         {
-            this.pneumatics.set(true);
+            this.fire();
             didShoot = true;    
         }
         
@@ -115,13 +127,190 @@ public class Catapult
     }
     
     /**
-     * This simply lowers the catapult. It could be done automatically,
-     * but at the moment it needs to be manually triggered.
+     * This lowers the catapult. It happens automatically once the fire time is
+     * up, but can still be done by hand to retract early.
      */
     public void lower()
     {
         // "False" causes the piston to retract.
         this.pneumatics.set(false);
+        
+        if (this.state == FIRING)
+        {
+            this.setState(RETRACTING);
+            this.fireTimes.cancel();
+            this.startTiming(this.retractTimes, false);
+            this.robot.getSensors().expect(this.reloaded, true,
+                    this.robot.getConfiguration().getCatapultSwitchTimeout());
+        }
+    }
+    
+    /**
+     * Moves the state machine along. Call this every control loop, after the
+     * sensors have been sampled. It never waits - it just checks the time.
+     */
+    public void update()
+    {
+        Configuration configuration = this.robot.getConfiguration();
+        SensorSnapshot sensors = this.robot.getSensors();
+        long now = this.robot.getHardware().getTime();
+        long elapsed = now - this.stateTime;
+        
+        // Time the piston, from the raw switch readings. If the switch has
+        // been found to be faulty part way through, the time means nothing.
+        this.moveLatency = 0;
+        
+        if (sensors.isHealthy(this.reloaded) == false)
+        {
+            this.fireTimes.cancel();
+            this.retractTimes.cancel();
+        }
+        else if (this.fireTimes.isTiming() && sensors.isRawSet(this.reloaded) == false)
+        {
+            this.moveLatency = this.fireTimes.finish(now);
+        }
+        else if (this.retractTimes.isTiming() && sensors.isRawSet(this.reloaded))
+        {
+            this.moveLatency = this.retractTimes.finish(now);
+        }
+        
+        switch (this.state)
+        {
+            // Held out long enough - bring it back in.
+            case FIRING:
+                if (elapsed >= configuration.getCatapultFireTime() * 1000L)
+                {
+                    this.lower();
+                }
+                break;
+                
+            // Back in? Use the reed switch if we trust it, and the time if 
+            // we don't (or if the switch never turns on).
+            case RETRACTING:
+                if ((this.useReloadedSwitch() && this.isLowered())
+                        || elapsed >= configuration.getCatapultRetractTime() * 1000L)
+                {
+                    this.setState(READY);
+                }
+                break;
+                
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Fires the piston and starts the fire timer.
+     */
+    private void fire()
+    {
+        this.pneumatics.set(true);
+        this.setState(FIRING);
+        this.fireTime = this.stateTime;
+        this.retractTimes.cancel();
+        this.startTiming(this.fireTimes, true);
+        this.robot.getAirSupply().useShot();
+        
+        // The piston should leave the switch as it goes out.
+        this.robot.getSensors().expect(this.reloaded, false,
+                this.robot.getConfiguration().getCatapultSwitchTimeout());
+    }
+    
+    /**
+     * Starts timing a piston move, which finishes when the reloaded switch 
+     * changes. That only means something if the switch can be trusted, and
+     * hasn't already changed - otherwise the move isn't timed at all, rather
+     * than being recorded as taking no time.
+     * @param times the histogram for the move
+     * @param switchOn what the switch should read before the move (on for 
+     * firing, off for retracting)
+     */
+    private void startTiming(LatencyHistogram times, boolean switchOn)
+    {
+        SensorSnapshot sensors = this.robot.getSensors();
+        
+        if (sensors.isHealthy(this.reloaded) && sensors.isRawSet(this.reloaded) == switchOn)
+        {
+            times.start(this.stateTime);
+        }
+        else
+        {
+            times.cancel();
+        }
+    }
+    
+    /**
+     * Returns whether the reloaded switch should be used - the configuration
+     * has to say so, and the switch can't be faulty.
+     * @return true if the switch can be trusted
+     */
+    private boolean useReloadedSwitch()
+    {
+        return this.robot.getConfiguration().getCatapultUseReloaded()
+                && this.robot.getSensors().isHealthy(this.reloaded);
+    }
+    
+    /**
+     * Moves to a new state, and records when.
+     * @param state the new state
+     */
+    private void setState(int state)
+    {
+        this.state = state;
+        this.stateTime = this.robot.getHardware().getTime();
+    }
+    
+    /**
+     * Checks that the catapult is down and ready to fire. It has to be IDLE
+     * or READY, and if we trust the reloaded switch, the switch has to agree
+     * that the catapult is back in. If the switch never does, the snapshot 
+     * marks it as faulty and we stop asking it. This can be called every 
+     * loop.
+     * @return true if the catapult can be fired
+     */
+    public boolean checkReloaded()
+    {
+        if (this.isReady() == false)
+        {
+            return false;
+        }
+        
+        if (this.useReloadedSwitch() && this.isLowered() == false)
+        {
+            this.robot.getSensors().expect(this.reloaded, true,
+                    this.robot.getConfiguration().getCatapultSwitchTimeout());
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Returns whether the catapult has finished its last shot. This doesn't
+     * check the reloaded switch - see checkReloaded().
+     * @return true if it is IDLE or READY
+     */
+    public boolean isReady()
+    {
+        return this.state == IDLE || this.state == READY;
+    }
+    
+    /**
+     * Returns when the catapult last fired (that is, released the ball).
+     * @return the time in microseconds, or -1 if it hasn't fired
+     */
+    public long getFireTime()
+    {
+        return this.fireTime;
+    }
+    
+    /**
+     * Returns where the state machine is up to.
+     * @return IDLE, FIRING, RETRACTING or READY
+     */
+    public int getState()
+    {
+        return this.state;
     }
     
     /**
@@ -131,11 +320,29 @@ public class Catapult
      */
     public boolean isLowered()
     {
-        return this.reloaded.get();
+        return this.robot.getSensors().isSet(this.reloaded);
     }
     
-    public boolean update_timer()
+    /**
+     * Returns whether the reloaded switch can be trusted.
+     * @return true if it isn't faulty
+     */
+    public boolean isHealthy()
     {
-        return false;
+        return this.robot.getSensors().isHealthy(this.reloaded);
     }
+    
+    /**
+     * Returns whether the piston is being told to fire (extend).
+     * @return true if the solenoid is on
+     */
+    public boolean isFiring()
+    {
+        return this.pneumatics.get();
+    }
+    
+    // Accessors
+    public LatencyHistogram getFireTimes() { return this.fireTimes; }
+    public LatencyHistogram getRetractTimes() { return this.retractTimes; }
+    public long getMoveLatency() { return this.moveLatency; }
 }
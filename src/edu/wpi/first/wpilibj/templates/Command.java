@@ -0,0 +1,233 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * Something the drivers (or the robot) want a subsystem to do, such as
+ * lowering the BAS or shooting. Commands are run by the CommandScheduler.
+ * 
+ * Each command says which resources it needs. The BAS has two (its arm and
+ * its roller), the catapult has one and the drive base has one. Commands that
+ * need different resources run at the same time, so the BAS can be raised
+ * while the catapult is lowered. If two commands want the same resource, the
+ * one with the higher priority (the lower number) gets it, and the other one
+ * waits until it is free again.
+ * 
+ * The commands teleop uses are kept in here as nested classes.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public abstract class Command
+{
+    // Resources. Each command needs one or more of these.
+    public static final int DRIVE = 1 << 0;     // The drive motors (the 
+                                                // joysticks drive whenever
+                                                // no command has them)
+    public static final int BAS_ARM = 1 << 1;   // The BAS solenoids
+    public static final int ROLLER = 1 << 2;    // The BAS roller motor
+    public static final int CATAPULT = 1 << 3;  // The catapult solenoid
+    public static final int RESOURCES = 4;
+    
+    private String name;                // Used in the feedback
+    private int requirements;           // The resources it needs
+    private int priority;               // Lower numbers win
+    
+    /**
+     * Constructor.
+     * @param name the name to use in feedback
+     * @param requirements the resources it needs (e.g. BAS_ARM | ROLLER)
+     * @param priority when two commands want the same resource, the lower
+     * number gets it
+     */
+    public Command(String name, int requirements, int priority)
+    {
+        this.name = name;
+        this.requirements = requirements;
+        this.priority = priority;
+    }
+    
+    /**
+     * Called when the command gets its resources. This can happen more than
+     * once, if it is interrupted by a more important command and then carries
+     * on. By default this does nothing.
+     * @param robot the main robot class
+     */
+    public void start(Robot robot)
+    {
+    }
+    
+    /**
+     * Called every control loop while the command has its resources.
+     * @param robot the main robot class
+     * @return true once the command has finished
+     */
+    public abstract boolean execute(Robot robot);
+    
+    /**
+     * Called when the command finishes, is cancelled, or loses its resources
+     * to a more important command. By default this does nothing.
+     * @param robot the main robot class
+     * @param interrupted true if it didn't finish by itself
+     */
+    public void end(Robot robot, boolean interrupted)
+    {
+    }
+    
+    // Accessors
+    public String getName() { return this.name; }
+    public int getRequirements() { return this.requirements; }
+    public int getPriority() { return this.priority; }
+    
+    /**
+     * Stops the roller. This is the roller's default, so it stops whenever
+     * nothing needs it.
+     */
+    public static class StopRoller extends Command
+    {
+        public StopRoller()
+        {
+            super("stop roller", ROLLER, Integer.MAX_VALUE);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getBAS().stop();
+            return false;
+        }
+    }
+    
+    /**
+     * Lowers the BAS, for as long as it is held.
+     */
+    public static class LowerBAS extends Command
+    {
+        public LowerBAS(int priority)
+        {
+            super("lower BAS", BAS_ARM, priority);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getBAS().lower();
+            return false;
+        }
+    }
+    
+    /**
+     * Raises the BAS, for as long as it is held.
+     */
+    public static class RaiseBAS extends Command
+    {
+        public RaiseBAS(int priority)
+        {
+            super("raise BAS", BAS_ARM, priority);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getBAS().raise();
+            return false;
+        }
+    }
+    
+    /**
+     * Shoots once. The catapult lowers the BAS first if it needs to, so this
+     * needs the BAS arm as well.
+     */
+    public static class Shoot extends Command
+    {
+        public Shoot(int priority)
+        {
+            super("shoot", CATAPULT | BAS_ARM, priority);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            return robot.getCatapult().shoot();
+        }
+    }
+    
+    /**
+     * Lowers (retracts) the catapult once.
+     */
+    public static class LowerCatapult extends Command
+    {
+        public LowerCatapult(int priority)
+        {
+            super("lower catapult", CATAPULT, priority);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getCatapult().lower();
+            return true;
+        }
+    }
+    
+    /**
+     * Drops the ball out of the BAS, for as long as it is held.
+     */
+    public static class DropBall extends Command
+    {
+        public DropBall(int priority)
+        {
+            super("drop ball", BAS_ARM | ROLLER, priority);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getBAS().dropBall();
+            return false;
+        }
+    }
+    
+    /**
+     * Picks up a ball, for as long as it is held.
+     */
+    public static class RetrieveBall extends Command
+    {
+        public RetrieveBall(int priority)
+        {
+            super("retrieve ball", BAS_ARM | ROLLER, priority);
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getBAS().fetchBall();
+            return false;
+        }
+    }
+    
+    /**
+     * Runs the shot cycle (pick up, settle, fire, over and over).
+     */
+    public static class RunShotCycle extends Command
+    {
+        public RunShotCycle(int priority)
+        {
+            super("shot cycle", CATAPULT | BAS_ARM | ROLLER, priority);
+        }
+        
+        public void start(Robot robot)
+        {
+            robot.getShotCycle().start();
+        }
+        
+        public boolean execute(Robot robot)
+        {
+            robot.getShotCycle().update();
+            return false;
+        }
+        
+        public void end(Robot robot, boolean interrupted)
+        {
+            robot.getShotCycle().stop();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * Decides which commands get to run each control loop. This replaces the old
+ * if/else chain, where only one thing could happen at a time.
+ * 
+ * Every loop, the scheduled commands are gone through from the highest
+ * priority to the lowest. A command runs if none of the resources it needs
+ * have been taken by a more important command; otherwise it waits (and if it
+ * was already running, it is told it has been interrupted). Any resource left
+ * over runs its default command, if it has one - for example, the roller is
+ * stopped whenever nothing is using it.
+ * 
+ * Commands are kept in a fixed size array, sorted by priority, so nothing is
+ * created while the robot is running.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class CommandScheduler
+{
+    private Robot robot;                // Reference to the main robot class
+    
+    private Command[] commands;         // Scheduled commands, by priority
+    private boolean[] running;          // True if it has its resources
+    private int count = 0;              // Number of scheduled commands
+    
+    private Command[] defaults;         // Default command for each resource
+    private int claimed = 0;            // Resources used in the last run()
+    
+    /**
+     * Constructor.
+     * @param robot the main robot class
+     * @param capacity the most commands that can be scheduled at once
+     */
+    public CommandScheduler(Robot robot, int capacity)
+    {
+        this.robot = robot;
+        
+        this.commands = new Command[capacity];
+        this.running = new boolean[capacity];
+        this.defaults = new Command[Command.RESOURCES];
+    }
+    
+    /**
+     * Sets the command to run when nothing else is using a resource. The
+     * command should only need that one resource.
+     * @param command the default command
+     */
+    public void setDefault(Command command)
+    {
+        for (int i = 0; i < Command.RESOURCES; i++)
+        {
+            if ((command.getRequirements() & (1 << i)) != 0)
+            {
+                this.defaults[i] = command;
+            }
+        }
+    }
+    
+    /**
+     * Schedules a command. If it is already scheduled, it is started again
+     * from the beginning.
+     * @param command the command to run
+     */
+    public void schedule(Command command)
+    {
+        int index = this.indexOf(command);
+        
+        if (index >= 0)
+        {
+            this.stop(index, true);
+            return;
+        }
+        
+        if (this.count == this.commands.length)
+        {
+            this.robot.feedback("Too many commands - ignoring " + command.getName());
+            return;
+        }
+        
+        // Keep the list sorted by priority. Commands with the same priority
+        // go after the ones already there.
+        int i = this.count;
+        
+        while (i > 0 && this.commands[i - 1].getPriority() > command.getPriority())
+        {
+            this.commands[i] = this.commands[i - 1];
+            this.running[i] = this.running[i - 1];
+            i--;
+        }
+        
+        this.commands[i] = command;
+        this.running[i] = false;
+        this.count++;
+    }
+    
+    /**
+     * Cancels a command. Nothing happens if it isn't scheduled.
+     * @param command the command to cancel
+     */
+    public void cancel(Command command)
+    {
+        int index = this.indexOf(command);
+        
+        if (index >= 0)
+        {
+            this.stop(index, true);
+            this.remove(index);
+        }
+    }
+    
+    /**
+     * Cancels every command.
+     */
+    public void cancelAll()
+    {
+        while (this.count > 0)
+        {
+            this.stop(this.count - 1, true);
+            this.remove(this.count - 1);
+        }
+    }
+    
+    /**
+     * Runs one control loop's worth of commands. Call this once per loop.
+     */
+    public void run()
+    {
+        int claimed = 0;
+        int i = 0;
+        
+        while (i < this.count)
+        {
+            Command command = this.commands[i];
+            
+            // Something more important has one of its resources. Wait.
+            if ((command.getRequirements() & claimed) != 0)
+            {
+                this.stop(i, true);
+                i++;
+                continue;
+            }
+            
+            claimed |= command.getRequirements();
+            
+            if (this.running[i] == false)
+            {
+                this.running[i] = true;
+                command.start(this.robot);
+            }
+            
+            // Finished by itself - take it off the list (the resources stay
+            // claimed for the rest of this loop).
+            if (command.execute(this.robot))
+            {
+                this.running[i] = false;
+                command.end(this.robot, false);
+                this.remove(i);
+            }
+            else
+            {
+                i++;
+            }
+        }
+        
+        // Anything left over runs its default.
+        for (int r = 0; r < Command.RESOURCES; r++)
+        {
+            if ((claimed & (1 << r)) == 0 && this.defaults[r] != null)
+            {
+                this.defaults[r].execute(this.robot);
+            }
+        }
+        
+        this.claimed = claimed;
+    }
+    
+    /**
+     * Tells a command that it has stopped, if it was running.
+     * @param index the command
+     * @param interrupted true if it didn't finish by itself
+     */
+    private void stop(int index, boolean interrupted)
+    {
+        if (this.running[index])
+        {
+            this.running[index] = false;
+            this.commands[index].end(this.robot, interrupted);
+        }
+    }
+    
+    /**
+     * Takes a command off the list.
+     * @param index the command
+     */
+    private void remove(int index)
+    {
+        for (int i = index; i < this.count - 1; i++)
+        {
+            this.commands[i] = this.commands[i + 1];
+            this.running[i] = this.running[i + 1];
+        }
+        
+        this.count--;
+        this.commands[this.count] = null;
+        this.running[this.count] = false;
+    }
+    
+    /**
+     * Finds a scheduled command.
+     * @param command the command to look for
+     * @return where it is, or -1 if it isn't scheduled
+     */
+    private int indexOf(Command command)
+    {
+        for (int i = 0; i < this.count; i++)
+        {
+            if (this.commands[i] == command)
+            {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Returns whether a command is scheduled (running or waiting).
+     * @param command the command
+     * @return true if it is scheduled
+     */
+    public boolean isScheduled(Command command)
+    {
+        return this.indexOf(command) >= 0;
+    }
+    
+    // Accessors
+    public int getCount() { return this.count; }
+    public int getClaimed() { return this.claimed; }
+}
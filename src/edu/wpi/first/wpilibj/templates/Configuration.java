@@ -7,7 +7,7 @@
 
 package edu.wpi.first.wpilibj.templates;
 
-import edu.wpi.first.wpilibj.*;
+import java.io.*;
 
 /**
  * Configuration contains the references to the various electronic parts and
@@ -17,13 +17,82 @@ import edu.wpi.first.wpilibj.*;
  * This is a very longwinded way of handling things. But the intent is to make 
  * the code as clear as possible, so "wordy" is good. 
  * 
+ * The values below are the defaults. Any of them can be changed, without
+ * recompiling, by putting them in a file on the cRIO (robot.cfg) with one 
+ * "name = value" per line, using the same names as below. Lines starting with
+ * # are ignored. For example:
+ * 
+ *   # Roller is too fast
+ *   basRetrieveBallSpeed = 0.8
+ * 
+ * The file is read once, into a new Configuration, and nothing can change it
+ * after that. To pick up changes, a new one is read and swapped in (see 
+ * Robot.reloadConfiguration()). Tuning values take effect straight away, but
+ * ports, the loop period and buffer sizes are only used when the robot 
+ * starts, so changing them needs a restart.
+ * 
+ * Each setting has a range it has to be in, so that a typo like a period of
+ * 0 can't stop the robot. Anything outside it is reported, and the default
+ * is kept.
+ * 
  * @author adam.jenkins@unisa.edu.au
  * @version 1.0
  */
 public class Configuration 
 {
+    // The number of each kind of port on the cRIO, for checking the settings.
+    public static final int DIGITAL_CHANNELS = 14;
+    public static final int PWM_CHANNELS = 10;
+    public static final int RELAY_CHANNELS = 8;
+    public static final int SOLENOID_CHANNELS = 8;
+    
+    // Control loop settings. The drive runs every drive period and the BAS,
+    // catapult and autonomous every loop period. The black box and the loop
+    // profiler's summary run less often, and are skipped for a cycle if the 
+    // drive and mechanisms have used more than the budget (a percentage of 
+    // the drive period).
+    private int loopPeriod = 20;            // Milliseconds between updates
+    private int drivePeriod = 10;           // Milliseconds
+    private int telemetryPeriod = 100;      // Milliseconds
+    private int loopBudget = 80;            // Percent
+    private int loopSummaryPeriod = 5000;   // Milliseconds
+    
+    // Input settings
+    private int buttonHoldTime = 1000;      // Milliseconds before a press is "held"
+    
+    // Feedback settings
+    private int feedbackCapacity = 64;      // Messages that can be waiting
+    private int feedbackDisplayPeriod = 200;// Milliseconds between LCD updates
+    
+    // Telemetry settings. Each record is 60 bytes, so 1024 records is 60KB, 
+    // or about 20 seconds at 50 loops per second.
+    private int telemetryCapacity = 1024;   // Records the buffer holds
+    private int telemetryBlock = 128;       // Records written at once
+    
+    // Output settings. Motors that haven't changed are still rewritten this 
+    // often, which needs to be well under the motor safety timeout (100ms).
+    private int motorRefreshTime = 50;      // Milliseconds
+    
+    // Sensor settings. A reed switch only changes once this many readings in
+    // a row agree (3 is 60ms at 50 loops a second).
+    private int sensorDebounceSamples = 3;
+    
     // Compressor settings
-    private int compressorFull = 1;
+    private int compressorFull = 1;         // Pressure switch
+    private int compressorRelay = 1;        // Spike relay for the compressor
+    
+    // Air budget (see AirSupply). Air is measured as a percentage of a full
+    // tank. These are guesses, to be checked against the piston timings.
+    private double basStrokeAir = 3.0;      // Each time the BAS moves
+    private double catapultShotAir = 10.0;  // Each time the catapult fires
+    private double compressorFillRate = 1.0;// Percent per second while running
+    
+    // The compressor is paused while the drive power is changing this fast
+    // (power per second - 4 is stopped to full in a quarter of a second), 
+    // and for the pause time after, unless there isn't enough air left for 
+    // the next shot.
+    private double compressorPauseAcceleration = 4.0;
+    private int compressorPauseTime = 500;  // Milliseconds
     
     // BAS settings
     private int basRaised = 2;              // Reed switch for extended piston   
@@ -36,21 +105,471 @@ public class Configuration
     private double basRetrieveBallSpeed = 1.0;  // Turn the motor to pick up the ball
     private double basDropBallSpeed = -1.0;     // Dropping the ball requires the motor to be reversed.
     
+    // If a reed switch hasn't changed this long after the BAS is told to 
+    // move, it is treated as broken. The BAS is then assumed to have moved
+    // once its solenoid has been on for the move time.
+    private int basSwitchTimeout = 2000;    // Milliseconds
+    private int basMoveTime = 1000;         // Milliseconds
+    
     // Drive settings
     private int leftDriveMotor1 = 1;        // Talon
     private int leftDriveMotor2 = 2;        // Talon
     private int rightDriveMotor1 = 3;       // Talon
     private int rightDriveMotor2 = 4;       // Talon
     
+    // Drive encoders, one on each side. The right one faces the other way, so
+    // it is reversed to count up going forward. There is no gyro, so the 
+    // heading is worked out from the difference between the two sides.
+    private int leftEncoderA = 5;
+    private int leftEncoderB = 6;
+    private int rightEncoderA = 7;
+    private int rightEncoderB = 8;
+    private boolean leftEncoderReversed = false;
+    private boolean rightEncoderReversed = true;
+    private double encoderDistancePerPulse = 0.00133; // Metres (6" wheel, 360 counts)
+    private double trackWidth = 0.6;        // Metres between the left and right wheels
+    
+    // Distance PID - output is power, input is metres.
+    private double distanceP = 1.5;
+    private double distanceI = 0.2;
+    private double distanceD = 0.05;
+    private double distanceIntegralLimit = 0.2;
+    private double distanceTolerance = 0.05; // Metres
+    private double distanceSettleSpeed = 0.1; // Metres per second to stop at
+    
+    // Motion profiles. The robot goes about 3 metres a second at full power,
+    // so each metre per second of the profile needs about 0.33 power.
+    private double profileKV = 0.33;        // Power per metre per second
+    
+    // Heading PID - output is power, input is radians.
+    private double headingP = 2.0;
+    private double headingI = 0.0;
+    private double headingD = 0.05;
+    private double headingIntegralLimit = 0.2;
+    
+    // Holds the heading in teleop while both sticks are about the same, so 
+    // the robot drives straight. Off until it has been tried out.
+    private boolean driveStraightAssist = false;
+    private double driveStraightBand = 0.1; // How close the sticks need to be
+    
+    // Joystick curves, one per driver (see InputCurve). Driver 1 is the same
+    // as the squared inputs we have always used. Driver 2 is gentler around 
+    // the middle, and driver 3 is for drivers still learning, with the top
+    // speed turned down.
+    public static final int DRIVERS = 3;
+    private int driver = 1;                 // Which curve to use
+    private double driver1Deadband = 0.0;
+    private double driver1Expo = 1.0;
+    private int driver1Power = 2;
+    private double driver1MaxOutput = 1.0;
+    private double driver2Deadband = 0.05;
+    private double driver2Expo = 0.7;
+    private int driver2Power = 3;
+    private double driver2MaxOutput = 1.0;
+    private double driver3Deadband = 0.08;
+    private double driver3Expo = 1.0;
+    private int driver3Power = 3;
+    private double driver3MaxOutput = 0.6;
+    
     // Catapult settings
     private int catapultReloadedSwitch = 3; // Reed switch for retracted piston
     private int catapultPneumatics = 1;     // Solonoid for extending piston
     
+    // How long to hold the catapult out after firing before it retracts 
+    // itself, and how long it takes to come back in. If the "reloaded" reed
+    // switch works, it is used to tell us it is back in sooner. If it doesn't
+    // change within the switch timeout, it is treated as broken and the 
+    // retract time is used instead.
+    private int catapultFireTime = 1000;    // Milliseconds
+    private int catapultRetractTime = 1000; // Milliseconds
+    private boolean catapultUseReloaded = true;
+    private int catapultSwitchTimeout = 1500; // Milliseconds
+    
+    // Autonomous settings. Each step gives up after its timeout, so a broken
+    // reed switch can't leave the robot stuck.
+    private double autoDriveSpeed = 0.5;    // Power to drive forward at
+    private double autoDriveTime = 4.0;     // Seconds to drive forward for
+    private double autoDriveDistance = 0.0; // Metres, or 0 to drive for the time
+    
+    // The autonomous distance drive follows a motion profile with these 
+    // limits. Set the velocity to 0 to just use the distance PID.
+    private double autoMaxVelocity = 2.0;   // Metres per second
+    private double autoMaxAcceleration = 2.5; // Metres per second per second
+    private double autoJerkTime = 0.2;      // Seconds to round corners (0 for none)
+    private int autoDriveTimeout = 5000;    // Milliseconds
+    private int autoLowerBASTimeout = 2000; // Milliseconds (while driving)
+    private int autoShootTimeout = 3000;    // Milliseconds (includes lowering the BAS)
+    private int autoRetractTimeout = 3000;  // Milliseconds
+    
+    // Shot cycle (hold the shoot button) settings.
+    private int shotCycleFetchTime = 1000;  // Milliseconds to run the roller
+    private int shotCycleSettleTime = 250;  // Milliseconds before firing
+    
+    // Anything wrong with the file, one per line. Empty if there wasn't.
+    private StringBuffer problems = new StringBuffer();
+    
+    // The file exactly as it was read, so the black box can record it. Empty
+    // for the defaults.
+    private byte[] text = new byte[0];
+    
+    /**
+     * Constructor - uses the defaults for everything.
+     */
+    public Configuration()
+    {
+    }
+    
+    /**
+     * Constructor - reads the settings from a file. Anything not in the file
+     * is left at its default. Anything that can't be understood is skipped,
+     * and listed in getProblems().
+     * @param in the file to read
+     * @throws IOException if the file can't be read
+     */
+    public Configuration(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        StringBuffer line = new StringBuffer();
+        int lineNumber = 1;
+        int c = in.read();
+        
+        // Read the file one line at a time.
+        while (c != -1)
+        {
+            copy.write(c);
+            
+            if (c == '\n')
+            {
+                this.parseLine(line.toString(), lineNumber);
+                line.setLength(0);
+                lineNumber++;
+            }
+            else if (c != '\r')
+            {
+                line.append((char) c);
+            }
+            
+            c = in.read();
+        }
+        
+        this.parseLine(line.toString(), lineNumber);
+        this.text = copy.toByteArray();
+        
+        // The black box only writes whole blocks, so a block bigger than the
+        // buffer would never be written.
+        if (this.telemetryBlock > this.telemetryCapacity)
+        {
+            this.telemetryBlock = Math.max(1, this.telemetryCapacity / 8);
+            this.problem("telemetryBlock can't be more than telemetryCapacity - using " 
+                    + this.telemetryBlock);
+        }
+    }
+    
+    /**
+     * Reads a single "name = value" line.
+     * @param line the line
+     * @param lineNumber the line number, for reporting problems
+     */
+    private void parseLine(String line, int lineNumber)
+    {
+        line = line.trim();
+        
+        // Blank lines and comments
+        if (line.length() == 0 || line.charAt(0) == '#')
+        {
+            return;
+        }
+        
+        int equals = line.indexOf('=');
+        
+        if (equals < 0)
+        {
+            this.problem("line " + lineNumber + " has no '='");
+            return;
+        }
+        
+        this.set(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+    }
+    
+    /**
+     * Sets one value. The names match the variables above, and the numbers 
+     * after the value are the smallest and largest it can be.
+     * @param key the name of the setting
+     * @param value the new value, as text
+     */
+    private void set(String key, String value)
+    {
+        if (key.equals("loopPeriod")) this.loopPeriod = this.toInt(key, value, this.loopPeriod, 1, 1000);
+        else if (key.equals("drivePeriod")) this.drivePeriod = this.toInt(key, value, this.drivePeriod, 1, 1000);
+        else if (key.equals("telemetryPeriod")) this.telemetryPeriod = this.toInt(key, value, this.telemetryPeriod, 1, 60000);
+        else if (key.equals("loopBudget")) this.loopBudget = this.toInt(key, value, this.loopBudget, 1, 100);
+        else if (key.equals("loopSummaryPeriod")) this.loopSummaryPeriod = this.toInt(key, value, this.loopSummaryPeriod, 1, 3600000);
+        else if (key.equals("buttonHoldTime")) this.buttonHoldTime = this.toInt(key, value, this.buttonHoldTime, 0, 60000);
+        else if (key.equals("feedbackCapacity")) this.feedbackCapacity = this.toInt(key, value, this.feedbackCapacity, 1, 1024);
+        else if (key.equals("feedbackDisplayPeriod")) this.feedbackDisplayPeriod = this.toInt(key, value, this.feedbackDisplayPeriod, 1, 60000);
+        else if (key.equals("telemetryCapacity")) this.telemetryCapacity = this.toInt(key, value, this.telemetryCapacity, 1, 16384);
+        else if (key.equals("telemetryBlock")) this.telemetryBlock = this.toInt(key, value, this.telemetryBlock, 1, 16384);
+        else if (key.equals("motorRefreshTime")) this.motorRefreshTime = this.toInt(key, value, this.motorRefreshTime, 1, 100);
+        else if (key.equals("sensorDebounceSamples")) this.sensorDebounceSamples = this.toInt(key, value, this.sensorDebounceSamples, 1, 50);
+        else if (key.equals("compressorFull")) this.compressorFull = this.toInt(key, value, this.compressorFull, 1, DIGITAL_CHANNELS);
+        else if (key.equals("compressorRelay")) this.compressorRelay = this.toInt(key, value, this.compressorRelay, 1, RELAY_CHANNELS);
+        else if (key.equals("basStrokeAir")) this.basStrokeAir = this.toDouble(key, value, this.basStrokeAir, 0, 100);
+        else if (key.equals("catapultShotAir")) this.catapultShotAir = this.toDouble(key, value, this.catapultShotAir, 0, 100);
+        else if (key.equals("compressorFillRate")) this.compressorFillRate = this.toDouble(key, value, this.compressorFillRate, 0, 100);
+        else if (key.equals("compressorPauseAcceleration")) this.compressorPauseAcceleration = this.toDouble(key, value, this.compressorPauseAcceleration, 0.1, 1000);
+        else if (key.equals("compressorPauseTime")) this.compressorPauseTime = this.toInt(key, value, this.compressorPauseTime, 0, 60000);
+        else if (key.equals("basRaised")) this.basRaised = this.toInt(key, value, this.basRaised, 1, DIGITAL_CHANNELS);
+        else if (key.equals("basLowered")) this.basLowered = this.toInt(key, value, this.basLowered, 1, DIGITAL_CHANNELS);
+        else if (key.equals("basMotor")) this.basMotor = this.toInt(key, value, this.basMotor, 1, PWM_CHANNELS);
+        else if (key.equals("basUp")) this.basUp = this.toInt(key, value, this.basUp, 1, SOLENOID_CHANNELS);
+        else if (key.equals("basDown")) this.basDown = this.toInt(key, value, this.basDown, 1, SOLENOID_CHANNELS);
+        else if (key.equals("basRetrieveBallSpeed")) this.basRetrieveBallSpeed = this.toDouble(key, value, this.basRetrieveBallSpeed, -1, 1);
+        else if (key.equals("basDropBallSpeed")) this.basDropBallSpeed = this.toDouble(key, value, this.basDropBallSpeed, -1, 1);
+        else if (key.equals("basSwitchTimeout")) this.basSwitchTimeout = this.toInt(key, value, this.basSwitchTimeout, 1, 60000);
+        else if (key.equals("basMoveTime")) this.basMoveTime = this.toInt(key, value, this.basMoveTime, 0, 60000);
+        else if (key.equals("leftDriveMotor1")) this.leftDriveMotor1 = this.toInt(key, value, this.leftDriveMotor1, 1, PWM_CHANNELS);
+        else if (key.equals("leftDriveMotor2")) this.leftDriveMotor2 = this.toInt(key, value, this.leftDriveMotor2, 1, PWM_CHANNELS);
+        else if (key.equals("rightDriveMotor1")) this.rightDriveMotor1 = this.toInt(key, value, this.rightDriveMotor1, 1, PWM_CHANNELS);
+        else if (key.equals("rightDriveMotor2")) this.rightDriveMotor2 = this.toInt(key, value, this.rightDriveMotor2, 1, PWM_CHANNELS);
+        else if (key.equals("leftEncoderA")) this.leftEncoderA = this.toInt(key, value, this.leftEncoderA, 1, DIGITAL_CHANNELS);
+        else if (key.equals("leftEncoderB")) this.leftEncoderB = this.toInt(key, value, this.leftEncoderB, 1, DIGITAL_CHANNELS);
+        else if (key.equals("rightEncoderA")) this.rightEncoderA = this.toInt(key, value, this.rightEncoderA, 1, DIGITAL_CHANNELS);
+        else if (key.equals("rightEncoderB")) this.rightEncoderB = this.toInt(key, value, this.rightEncoderB, 1, DIGITAL_CHANNELS);
+        else if (key.equals("leftEncoderReversed")) this.leftEncoderReversed = this.toBoolean(key, value, this.leftEncoderReversed);
+        else if (key.equals("rightEncoderReversed")) this.rightEncoderReversed = this.toBoolean(key, value, this.rightEncoderReversed);
+        else if (key.equals("encoderDistancePerPulse")) this.encoderDistancePerPulse = this.toDouble(key, value, this.encoderDistancePerPulse, 0.00001, 1);
+        else if (key.equals("trackWidth")) this.trackWidth = this.toDouble(key, value, this.trackWidth, 0.1, 5);
+        else if (key.equals("distanceP")) this.distanceP = this.toDouble(key, value, this.distanceP, 0, 100);
+        else if (key.equals("distanceI")) this.distanceI = this.toDouble(key, value, this.distanceI, 0, 100);
+        else if (key.equals("distanceD")) this.distanceD = this.toDouble(key, value, this.distanceD, 0, 100);
+        else if (key.equals("distanceIntegralLimit")) this.distanceIntegralLimit = this.toDouble(key, value, this.distanceIntegralLimit, 0, 1);
+        else if (key.equals("distanceTolerance")) this.distanceTolerance = this.toDouble(key, value, this.distanceTolerance, 0.001, 1);
+        else if (key.equals("distanceSettleSpeed")) this.distanceSettleSpeed = this.toDouble(key, value, this.distanceSettleSpeed, 0.001, 5);
+        else if (key.equals("profileKV")) this.profileKV = this.toDouble(key, value, this.profileKV, 0, 10);
+        else if (key.equals("headingP")) this.headingP = this.toDouble(key, value, this.headingP, 0, 100);
+        else if (key.equals("headingI")) this.headingI = this.toDouble(key, value, this.headingI, 0, 100);
+        else if (key.equals("headingD")) this.headingD = this.toDouble(key, value, this.headingD, 0, 100);
+        else if (key.equals("headingIntegralLimit")) this.headingIntegralLimit = this.toDouble(key, value, this.headingIntegralLimit, 0, 1);
+        else if (key.equals("driveStraightAssist")) this.driveStraightAssist = this.toBoolean(key, value, this.driveStraightAssist);
+        else if (key.equals("driveStraightBand")) this.driveStraightBand = this.toDouble(key, value, this.driveStraightBand, 0, 1);
+        else if (key.equals("driver")) this.driver = this.toInt(key, value, this.driver, 1, DRIVERS);
+        else if (key.equals("driver1Deadband")) this.driver1Deadband = this.toDouble(key, value, this.driver1Deadband, 0, 0.99);
+        else if (key.equals("driver1Expo")) this.driver1Expo = this.toDouble(key, value, this.driver1Expo, 0, 1);
+        else if (key.equals("driver1Power")) this.driver1Power = this.toInt(key, value, this.driver1Power, 1, 10);
+        else if (key.equals("driver1MaxOutput")) this.driver1MaxOutput = this.toDouble(key, value, this.driver1MaxOutput, 0, 1);
+        else if (key.equals("driver2Deadband")) this.driver2Deadband = this.toDouble(key, value, this.driver2Deadband, 0, 0.99);
+        else if (key.equals("driver2Expo")) this.driver2Expo = this.toDouble(key, value, this.driver2Expo, 0, 1);
+        else if (key.equals("driver2Power")) this.driver2Power = this.toInt(key, value, this.driver2Power, 1, 10);
+        else if (key.equals("driver2MaxOutput")) this.driver2MaxOutput = this.toDouble(key, value, this.driver2MaxOutput, 0, 1);
+        else if (key.equals("driver3Deadband")) this.driver3Deadband = this.toDouble(key, value, this.driver3Deadband, 0, 0.99);
+        else if (key.equals("driver3Expo")) this.driver3Expo = this.toDouble(key, value, this.driver3Expo, 0, 1);
+        else if (key.equals("driver3Power")) this.driver3Power = this.toInt(key, value, this.driver3Power, 1, 10);
+        else if (key.equals("driver3MaxOutput")) this.driver3MaxOutput = this.toDouble(key, value, this.driver3MaxOutput, 0, 1);
+        else if (key.equals("catapultReloadedSwitch")) this.catapultReloadedSwitch = this.toInt(key, value, this.catapultReloadedSwitch, 1, DIGITAL_CHANNELS);
+        else if (key.equals("catapultPneumatics")) this.catapultPneumatics = this.toInt(key, value, this.catapultPneumatics, 1, SOLENOID_CHANNELS);
+        else if (key.equals("catapultFireTime")) this.catapultFireTime = this.toInt(key, value, this.catapultFireTime, 0, 60000);
+        else if (key.equals("catapultRetractTime")) this.catapultRetractTime = this.toInt(key, value, this.catapultRetractTime, 0, 60000);
+        else if (key.equals("catapultUseReloaded")) this.catapultUseReloaded = this.toBoolean(key, value, this.catapultUseReloaded);
+        else if (key.equals("catapultSwitchTimeout")) this.catapultSwitchTimeout = this.toInt(key, value, this.catapultSwitchTimeout, 1, 60000);
+        else if (key.equals("autoDriveSpeed")) this.autoDriveSpeed = this.toDouble(key, value, this.autoDriveSpeed, -1, 1);
+        else if (key.equals("autoDriveTime")) this.autoDriveTime = this.toDouble(key, value, this.autoDriveTime, 0, 15);
+        else if (key.equals("autoDriveDistance")) this.autoDriveDistance = this.toDouble(key, value, this.autoDriveDistance, 0, 20);
+        else if (key.equals("autoMaxVelocity")) this.autoMaxVelocity = this.toDouble(key, value, this.autoMaxVelocity, 0, 5);
+        else if (key.equals("autoMaxAcceleration")) this.autoMaxAcceleration = this.toDouble(key, value, this.autoMaxAcceleration, 0.1, 20);
+        else if (key.equals("autoJerkTime")) this.autoJerkTime = this.toDouble(key, value, this.autoJerkTime, 0, 2);
+        else if (key.equals("autoDriveTimeout")) this.autoDriveTimeout = this.toInt(key, value, this.autoDriveTimeout, 0, 60000);
+        else if (key.equals("autoLowerBASTimeout")) this.autoLowerBASTimeout = this.toInt(key, value, this.autoLowerBASTimeout, 0, 60000);
+        else if (key.equals("autoShootTimeout")) this.autoShootTimeout = this.toInt(key, value, this.autoShootTimeout, 0, 60000);
+        else if (key.equals("autoRetractTimeout")) this.autoRetractTimeout = this.toInt(key, value, this.autoRetractTimeout, 0, 60000);
+        else if (key.equals("shotCycleFetchTime")) this.shotCycleFetchTime = this.toInt(key, value, this.shotCycleFetchTime, 0, 60000);
+        else if (key.equals("shotCycleSettleTime")) this.shotCycleSettleTime = this.toInt(key, value, this.shotCycleSettleTime, 0, 60000);
+        else this.problem("unknown setting " + key);
+    }
+    
+    /**
+     * Converts a value to an int, or records a problem if it isn't one or 
+     * it is out of range.
+     * @param key the name of the setting
+     * @param value the value, as text
+     * @param current the value to keep if it isn't a number, or is out of range
+     * @param min the smallest it can be
+     * @param max the largest it can be
+     * @return the new value
+     */
+    private int toInt(String key, String value, int current, int min, int max)
+    {
+        int number;
+        
+        try
+        {
+            number = Integer.parseInt(value);
+        }
+        catch (NumberFormatException e)
+        {
+            this.problem(key + " should be a whole number, not " + value);
+            return current;
+        }
+        
+        if (number < min || number > max)
+        {
+            this.problem(key + " should be from " + min + " to " + max + ", not " + value);
+            return current;
+        }
+        
+        return number;
+    }
+    
+    /**
+     * Converts a value to a double, or records a problem if it isn't one or
+     * it is out of range.
+     * @param key the name of the setting
+     * @param value the value, as text
+     * @param current the value to keep if it isn't a number, or is out of range
+     * @param min the smallest it can be
+     * @param max the largest it can be
+     * @return the new value
+     */
+    private double toDouble(String key, String value, double current, double min, double max)
+    {
+        double number;
+        
+        try
+        {
+            number = Double.parseDouble(value);
+        }
+        catch (NumberFormatException e)
+        {
+            this.problem(key + " should be a number, not " + value);
+            return current;
+        }
+        
+        // Written this way round so that NaN is out of range too.
+        if ((number >= min && number <= max) == false)
+        {
+            this.problem(key + " should be from " + min + " to " + max + ", not " + value);
+            return current;
+        }
+        
+        return number;
+    }
+    
+    /**
+     * Converts a value to a boolean, or records a problem if it isn't one.
+     * @param key the name of the setting
+     * @param value the value, as text
+     * @param current the value to keep if it isn't true or false
+     * @return the new value
+     */
+    private boolean toBoolean(String key, String value, boolean current)
+    {
+        if (value.equals("true")) return true;
+        if (value.equals("false")) return false;
+        
+        this.problem(key + " should be true or false, not " + value);
+        return current;
+    }
+    
+    /**
+     * Records a problem with the file.
+     * @param problem what was wrong
+     */
+    private void problem(String problem)
+    {
+        if (this.problems.length() > 0)
+        {
+            this.problems.append('\n');
+        }
+        this.problems.append(problem);
+    }
+    
+    /**
+     * Returns anything that was wrong with the file.
+     * @return the problems, one per line, or an empty string if there weren't any
+     */
+    public String getProblems()
+    {
+        return this.problems.toString();
+    }
+    
+    /**
+     * Returns the file this configuration was read from, byte for byte. 
+     * Reading it back in gives the same settings. This is the array itself,
+     * not a copy, so don't change it.
+     * @return the file, or no bytes for the defaults
+     */
+    public byte[] getText()
+    {
+        return this.text;
+    }
+    
+    /**
+     * Checks whether another configuration has the same startup settings - 
+     * the ports, loop period and buffer sizes. These are only used when the 
+     * robot starts, so if they differ a restart is needed.
+     * @param other the other configuration
+     * @return true if every startup setting is the same
+     */
+    public boolean hasSameStartupSettings(Configuration other)
+    {
+        return this.loopPeriod == other.loopPeriod
+                && this.drivePeriod == other.drivePeriod
+                && this.telemetryPeriod == other.telemetryPeriod
+                && this.loopBudget == other.loopBudget
+                && this.loopSummaryPeriod == other.loopSummaryPeriod
+                && this.feedbackCapacity == other.feedbackCapacity
+                && this.telemetryCapacity == other.telemetryCapacity
+                && this.telemetryBlock == other.telemetryBlock
+                && this.motorRefreshTime == other.motorRefreshTime
+                && this.basRaised == other.basRaised
+                && this.basLowered == other.basLowered
+                && this.basMotor == other.basMotor
+                && this.basUp == other.basUp
+                && this.basDown == other.basDown
+                && this.leftDriveMotor1 == other.leftDriveMotor1
+                && this.leftDriveMotor2 == other.leftDriveMotor2
+                && this.rightDriveMotor1 == other.rightDriveMotor1
+                && this.rightDriveMotor2 == other.rightDriveMotor2
+                && this.leftEncoderA == other.leftEncoderA
+                && this.leftEncoderB == other.leftEncoderB
+                && this.rightEncoderA == other.rightEncoderA
+                && this.rightEncoderB == other.rightEncoderB
+                && this.leftEncoderReversed == other.leftEncoderReversed
+                && this.rightEncoderReversed == other.rightEncoderReversed
+                && this.catapultReloadedSwitch == other.catapultReloadedSwitch
+                && this.catapultPneumatics == other.catapultPneumatics
+                && this.compressorFull == other.compressorFull
+                && this.compressorRelay == other.compressorRelay;
+    }
+    
     // These shouldn't need to be touched unless new components are added. This 
     // is a basic set of accessors - avoids making the instance variables public,
     // as that opens them up to problems.
     
+    public int getLoopPeriod() { return this.loopPeriod; }
+    public int getDrivePeriod() { return this.drivePeriod; }
+    public int getTelemetryPeriod() { return this.telemetryPeriod; }
+    public int getLoopBudget() { return this.loopBudget; }
+    public int getLoopSummaryPeriod() { return this.loopSummaryPeriod; }
+    public int getButtonHoldTime() { return this.buttonHoldTime; }
+    
+    public int getFeedbackCapacity() { return this.feedbackCapacity; }
+    public int getFeedbackDisplayPeriod() { return this.feedbackDisplayPeriod; }
+    
+    public int getTelemetryCapacity() { return this.telemetryCapacity; }
+    public int getTelemetryBlock() { return this.telemetryBlock; }
+    
+    public int getMotorRefreshTime() { return this.motorRefreshTime; }
+    
+    public int getSensorDebounceSamples() { return this.sensorDebounceSamples; }
+    
     public int getCompressorSwitch() { return this.compressorFull; }
+    public int getCompressorRelay() { return this.compressorRelay; }
+    
+    public double getBASStrokeAir() { return this.basStrokeAir; }
+    public double getCatapultShotAir() { return this.catapultShotAir; }
+    public double getCompressorFillRate() { return this.compressorFillRate; }
+    public double getCompressorPauseAcceleration() { return this.compressorPauseAcceleration; }
+    public int getCompressorPauseTime() { return this.compressorPauseTime; }
     
     public int getBASLowered() { return this.basLowered; }
     public int getBASRaised() { return this.basRaised; }
@@ -58,6 +577,8 @@ public class Configuration
     public int getBASUp() { return this.basUp; }
     public int getBASDown() { return this.basDown; }
     public double getBASDropBallSpeed() { return this.basDropBallSpeed; }
+    public int getBASSwitchTimeout() { return this.basSwitchTimeout; }
+    public int getBASMoveTime() { return this.basMoveTime; }
     public double getBASRetrieveBallSpeed() { return this.basRetrieveBallSpeed; }
     
     public int getLeftDriveMotor1() { return this.leftDriveMotor1; }
@@ -65,6 +586,73 @@ public class Configuration
     public int getRightDriveMotor1() { return this.rightDriveMotor1; }
     public int getRightDriveMotor2() { return rightDriveMotor2; }
     
+    public int getLeftEncoderA() { return this.leftEncoderA; }
+    public int getLeftEncoderB() { return this.leftEncoderB; }
+    public int getRightEncoderA() { return this.rightEncoderA; }
+    public int getRightEncoderB() { return this.rightEncoderB; }
+    public boolean getLeftEncoderReversed() { return this.leftEncoderReversed; }
+    public boolean getRightEncoderReversed() { return this.rightEncoderReversed; }
+    public double getEncoderDistancePerPulse() { return this.encoderDistancePerPulse; }
+    public double getTrackWidth() { return this.trackWidth; }
+    
+    public double getDistanceP() { return this.distanceP; }
+    public double getDistanceI() { return this.distanceI; }
+    public double getDistanceD() { return this.distanceD; }
+    public double getDistanceIntegralLimit() { return this.distanceIntegralLimit; }
+    public double getDistanceTolerance() { return this.distanceTolerance; }
+    public double getDistanceSettleSpeed() { return this.distanceSettleSpeed; }
+    public double getProfileKV() { return this.profileKV; }
+    
+    public double getHeadingP() { return this.headingP; }
+    public double getHeadingI() { return this.headingI; }
+    public double getHeadingD() { return this.headingD; }
+    public double getHeadingIntegralLimit() { return this.headingIntegralLimit; }
+    
+    public boolean getDriveStraightAssist() { return this.driveStraightAssist; }
+    public double getDriveStraightBand() { return this.driveStraightBand; }
+    
+    public int getDriver() { return this.driver; }
+    public double getDriverDeadband(int driver) { return this.pick(driver, this.driver1Deadband, this.driver2Deadband, this.driver3Deadband); }
+    public double getDriverExpo(int driver) { return this.pick(driver, this.driver1Expo, this.driver2Expo, this.driver3Expo); }
+    public int getDriverPower(int driver) { return (int) this.pick(driver, this.driver1Power, this.driver2Power, this.driver3Power); }
+    public double getDriverMaxOutput(int driver) { return this.pick(driver, this.driver1MaxOutput, this.driver2MaxOutput, this.driver3MaxOutput); }
+    
     public int getCatapultReloaded() { return this.catapultReloadedSwitch; }
     public int getCatapultPneumatics() { return this.catapultPneumatics; }
+    public int getCatapultFireTime() { return this.catapultFireTime; }
+    public int getCatapultRetractTime() { return this.catapultRetractTime; }
+    public boolean getCatapultUseReloaded() { return this.catapultUseReloaded; }
+    public int getCatapultSwitchTimeout() { return this.catapultSwitchTimeout; }
+    
+    public double getAutoDriveSpeed() { return this.autoDriveSpeed; }
+    public double getAutoDriveTime() { return this.autoDriveTime; }
+    public double getAutoDriveDistance() { return this.autoDriveDistance; }
+    public double getAutoMaxVelocity() { return this.autoMaxVelocity; }
+    public double getAutoMaxAcceleration() { return this.autoMaxAcceleration; }
+    public double getAutoJerkTime() { return this.autoJerkTime; }
+    public int getAutoDriveTimeout() { return this.autoDriveTimeout; }
+    public int getAutoLowerBASTimeout() { return this.autoLowerBASTimeout; }
+    public int getAutoShootTimeout() { return this.autoShootTimeout; }
+    public int getAutoRetractTimeout() { return this.autoRetractTimeout; }
+    
+    public int getShotCycleFetchTime() { return this.shotCycleFetchTime; }
+    public int getShotCycleSettleTime() { return this.shotCycleSettleTime; }
+    
+    /**
+     * Picks one of the per-driver settings.
+     * @param driver the driver, from 1 to DRIVERS
+     * @param driver1 the setting for driver 1
+     * @param driver2 the setting for driver 2
+     * @param driver3 the setting for driver 3
+     * @return the driver's setting (driver 1's if the number is wrong)
+     */
+    private double pick(int driver, double driver1, double driver2, double driver3)
+    {
+        switch (driver)
+        {
+            case 2: return driver2;
+            case 3: return driver3;
+            default: return driver1;
+        }
+    }
 }
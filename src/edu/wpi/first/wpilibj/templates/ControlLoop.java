@@ -0,0 +1,316 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * ControlLoop runs tasks at fixed rates. Each call to tick() waits until the 
+ * next cycle is due, runs whichever tasks are due in that cycle and works out
+ * when the next cycle is due, sleeping for whatever is left of the period 
+ * rather than looping as fast as possible.
+ * 
+ * The loop's own period is the fastest rate. Each task is added with its own
+ * period, which is rounded to a whole number of cycles - with a 10ms loop, a
+ * 20ms task runs every second cycle and a 200ms task every twentieth. Slow 
+ * tasks are spread across different cycles, so they don't all land at once.
+ * 
+ * Tasks are either critical (the drive, the mechanisms) or not (feedback, the
+ * black box). If the critical tasks have already used up the cycle's budget,
+ * any other task due in that cycle is skipped, and tried again next cycle. 
+ * This keeps the drive on time as more gets added.
+ * 
+ * It also keeps track of how long each cycle and each task takes (execution
+ * time), how late each cycle started compared to when it was due (jitter), 
+ * how many times a cycle ran past the end of its period (overruns) and how 
+ * many times each task was skipped. This lets us check that there is plenty
+ * of spare CPU, and that the loop is running when it should. If it is given
+ * a LoopProfiler, the profiler is told when each cycle starts and ends, so 
+ * it can work out which part of the robot made a cycle overrun.
+ * 
+ * All times are in microseconds, as that is what the FPGA timer gives us. The
+ * time comes from the Hardware, so the loop runs off the simulated clock too.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class ControlLoop 
+{
+    // Most tasks one loop can run.
+    private static final int MAX_TASKS = 8;
+    
+    private Hardware hardware;          // Where the time comes from
+    private long period;                // Time between cycles (microseconds)
+    private long budget;                // Time critical tasks can use (us)
+    
+    // The tasks, in the order they run within a cycle.
+    private String[] names = new String[MAX_TASKS];
+    private Runnable[] tasks = new Runnable[MAX_TASKS];
+    private int[] cycles = new int[MAX_TASKS];      // Run every this many cycles
+    private int[] phase = new int[MAX_TASKS];       // Which cycle of those
+    private boolean[] critical = new boolean[MAX_TASKS];
+    private boolean[] pending = new boolean[MAX_TASKS]; // Skipped, still due
+    private int taskCount = 0;
+    
+    private long nextTickTime = 0;      // When the next cycle is due
+    private LoopProfiler profiler;      // Told about each cycle, if not null
+    
+    // Statistics. These are reset by start().
+    private long ticks = 0;             // Number of cycles run
+    private long overruns = 0;          // Cycles that ran past their period
+    private long lastExecutionTime = 0; // How long the last cycle took
+    private long maxExecutionTime = 0;  // Longest cycle so far
+    private long totalExecutionTime = 0;// Used to work out the average
+    private long lastJitter = 0;        // How late the last cycle started
+    private long maxJitter = 0;         // Latest start so far
+    
+    // Statistics for each task.
+    private long[] runs = new long[MAX_TASKS];
+    private long[] skips = new long[MAX_TASKS];
+    private long[] taskTime = new long[MAX_TASKS];  // Last run (us)
+    private long[] maxTaskTime = new long[MAX_TASKS];
+    private long[] totalTaskTime = new long[MAX_TASKS];
+    
+    /**
+     * Constructor. The tasks are given to the loop with add().
+     * @param hardware the hardware, which provides the time
+     * @param period the time between cycles, in milliseconds - the period of
+     * the fastest task
+     * @param budget the percentage of each cycle the critical tasks can use
+     * before the other tasks are skipped
+     */
+    public ControlLoop(Hardware hardware, int period, int budget)
+    {
+        this.hardware = hardware;
+        this.period = period * 1000L;
+        this.budget = this.period * budget / 100;
+    }
+    
+    /**
+     * Adds a task.
+     * @param name what to call it in the summary
+     * @param task the task
+     * @param period the time between runs, in milliseconds. This is rounded
+     * to a whole number of cycles.
+     * @param critical true if it must run every time it is due, false if it
+     * can be skipped when the cycle is over budget
+     */
+    public void add(String name, Runnable task, int period, boolean critical)
+    {
+        if (this.taskCount >= MAX_TASKS)
+        {
+            throw new IllegalStateException("Too many tasks");
+        }
+        
+        int i = this.taskCount++;
+        
+        this.names[i] = name;
+        this.tasks[i] = task;
+        this.cycles[i] = (int) Math.max(1, (period * 1000L + this.period / 2) / this.period);
+        this.phase[i] = i % this.cycles[i];
+        this.critical[i] = critical;
+    }
+    
+    /**
+     * Gives the loop a profiler to tell about each cycle.
+     * @param profiler the profiler, or null for none
+     */
+    public void setProfiler(LoopProfiler profiler)
+    {
+        this.profiler = profiler;
+    }
+    
+    /**
+     * Gets the loop ready to go. This clears the statistics and makes the 
+     * first cycle due straight away. Call this before the first tick() of 
+     * each mode, so that time spent disabled isn't counted as an overrun.
+     */
+    public void start()
+    {
+        this.ticks = 0;
+        this.overruns = 0;
+        this.lastExecutionTime = 0;
+        this.maxExecutionTime = 0;
+        this.totalExecutionTime = 0;
+        this.lastJitter = 0;
+        this.maxJitter = 0;
+        
+        for (int i = 0; i < this.taskCount; i++)
+        {
+            this.pending[i] = false;
+            this.runs[i] = 0;
+            this.skips[i] = 0;
+            this.taskTime[i] = 0;
+            this.maxTaskTime[i] = 0;
+            this.totalTaskTime[i] = 0;
+        }
+        
+        this.nextTickTime = this.hardware.getTime();
+    }
+    
+    /**
+     * Waits until the next cycle is due, and then runs the tasks that are due
+     * in it. 
+     */
+    public void tick()
+    {
+        // Sleep for whatever is left of the period. The sleep is only accurate
+        // to a millisecond or so, which is what the jitter figures will show.
+        long now = this.hardware.getTime();
+        long remaining = this.nextTickTime - now;
+        
+        if (remaining >= 1000)
+        {
+            try
+            {
+                Thread.sleep(remaining / 1000);
+            }
+            catch (InterruptedException e)
+            {
+                // Not a problem - we just run a little early.
+            }
+        }
+        
+        // Record how late we are.
+        long startTime = this.hardware.getTime();
+        this.lastJitter = Math.max(0, startTime - this.nextTickTime);
+        this.maxJitter = Math.max(this.maxJitter, this.lastJitter);
+        
+        // Do the actual work.
+        long taskStart = startTime;
+        
+        if (this.profiler != null)
+        {
+            this.profiler.startCycle();
+        }
+        
+        for (int i = 0; i < this.taskCount; i++)
+        {
+            if ((this.ticks + this.phase[i]) % this.cycles[i] == 0)
+            {
+                this.pending[i] = true;
+            }
+            
+            if (this.pending[i] == false)
+            {
+                continue;
+            }
+            
+            // Over budget - leave it until next cycle.
+            if (this.critical[i] == false && taskStart - startTime > this.budget)
+            {
+                this.skips[i]++;
+                continue;
+            }
+            
+            this.pending[i] = false;
+            this.tasks[i].run();
+            
+            long taskEnd = this.hardware.getTime();
+            this.taskTime[i] = taskEnd - taskStart;
+            this.maxTaskTime[i] = Math.max(this.maxTaskTime[i], this.taskTime[i]);
+            this.totalTaskTime[i] += this.taskTime[i];
+            this.runs[i]++;
+            taskStart = taskEnd;
+        }
+        
+        // Record how long it took.
+        long endTime = this.hardware.getTime();
+        this.lastExecutionTime = endTime - startTime;
+        this.maxExecutionTime = Math.max(this.maxExecutionTime, this.lastExecutionTime);
+        this.totalExecutionTime += this.lastExecutionTime;
+        this.ticks++;
+        
+        if (this.profiler != null)
+        {
+            this.profiler.endCycle(this.lastExecutionTime, this.period);
+        }
+        
+        // Work out when the next cycle is due. If we've already missed it, 
+        // count the overrun and start again from now - trying to catch up
+        // would just run a burst of cycles back to back.
+        this.nextTickTime += this.period;
+        
+        if (endTime > this.nextTickTime)
+        {
+            this.overruns++;
+            this.nextTickTime = endTime;
+        }
+    }
+    
+    /**
+     * Returns the average time a cycle has taken, in microseconds.
+     * @return the average execution time
+     */
+    public long getAverageExecutionTime()
+    {
+        long average = 0;
+        
+        if (this.ticks > 0)
+        {
+            average = this.totalExecutionTime / this.ticks;
+        }
+        
+        return average;
+    }
+    
+    /**
+     * Returns how much of the period the tasks use on average, as a 
+     * percentage. Anything well under 100 means we have CPU to spare.
+     * @return the average load, as a percentage
+     */
+    public long getLoad()
+    {
+        return (this.getAverageExecutionTime() * 100) / this.period;
+    }
+    
+    /**
+     * Returns a short summary of the statistics, suitable for feedback().
+     * @return the loop statistics
+     */
+    public String getSummary()
+    {
+        return "Loop " + (this.period / 1000) + "ms: " 
+                + this.ticks + " ticks, "
+                + this.overruns + " overruns, "
+                + "avg " + this.getAverageExecutionTime() + "us, "
+                + "max " + this.maxExecutionTime + "us, "
+                + "jitter " + this.maxJitter + "us, "
+                + "load " + this.getLoad() + "%";
+    }
+    
+    /**
+     * Returns a short summary of one task's statistics, suitable for 
+     * feedback().
+     * @param task the task, numbered in the order they were added
+     * @return the task statistics
+     */
+    public String getTaskSummary(int task)
+    {
+        long average = (this.runs[task] == 0) ? 0 : this.totalTaskTime[task] / this.runs[task];
+        
+        return "Task " + this.names[task] + " "
+                + (this.cycles[task] * this.period / 1000) + "ms: "
+                + this.runs[task] + " runs, "
+                + this.skips[task] + " skipped, "
+                + "avg " + average + "us, "
+                + "max " + this.maxTaskTime[task] + "us";
+    }
+    
+    // Accessors
+    public long getPeriod() { return this.period; }
+    public long getTicks() { return this.ticks; }
+    public long getOverruns() { return this.overruns; }
+    public long getLastExecutionTime() { return this.lastExecutionTime; }
+    public long getMaxExecutionTime() { return this.maxExecutionTime; }
+    public long getLastJitter() { return this.lastJitter; }
+    public long getMaxJitter() { return this.maxJitter; }
+    public int getTaskCount() { return this.taskCount; }
+    public String getTaskName(int task) { return this.names[task]; }
+    public long getTaskTime(int task) { return this.taskTime[task]; }
+    public long getMaxTaskTime(int task) { return this.maxTaskTime[task]; }
+    public long getSkips(int task) { return this.skips[task]; }
+}
@@ -7,64 +7,157 @@
 
 package edu.wpi.first.wpilibj.templates;
 
-import edu.wpi.first.wpilibj.*;
-
 /**
  * DriveBase is mostly to configure the base so that the robot can move. 
  * Moving is good. Not moving is bad. This should contain methods to move for
  * a set length of time in order to assist with autonomous mode.
  * 
+ * There is an encoder on each side, so it can also drive a set distance. Two
+ * PID controllers do this - one for the distance, and one that holds the
+ * heading (worked out from the difference between the two sides) so that it
+ * goes straight. The heading one can also help the drivers go straight in 
+ * teleop.
+ * 
  * @author adam.jenkins@unisa.edu.au
  * @version 1.0
  */
 public class DriveBase 
 {
-    private RobotMain robot;            // Reference to the main robot class
+    // Types of drive
+    private static final int TIMED = 0;     // For a set time
+    private static final int DISTANCE = 1;  // To a distance, using a PID
+    private static final int PROFILE = 2;   // Following a motion profile
+    
+    private Robot robot;                // Reference to the main robot class
+    
+    // Drives the robot. This is important. :) We're using four Talon motors, 
+    // two on each side. These used to be handed to a WPILib RobotDrive, but 
+    // that needs the real hardware, so the (small) bit of maths it did for us
+    // is now done here.
+    private Hardware.MotorOutput leftMotor1;
+    private Hardware.MotorOutput leftMotor2;
+    private Hardware.MotorOutput rightMotor1;
+    private Hardware.MotorOutput rightMotor2;
+    
+    // Inverts the direction of the motors. Not particularly meaningful with 
+    // this robot - can be changed as required by the drivers.
+    private boolean leftInverted = false;
+    private boolean rightInverted = false;
     
-    private RobotDrive driveBase;       // Drives the robot. This is important. :)
+    // The current timed drive. These are set by drive() and serviced by 
+    // update(), so that driving for a set time doesn't tie up the caller.
+    private double commandSpeed = 0.0;      // Power to drive at
+    private double commandAngle = 0.0;      // Rotation to drive with
+    private long commandStopTime = 0;       // Time (in us) to stop driving
+    private boolean commandRunning = false; // True while a drive is going
+    private int commandType = TIMED;        // TIMED, DISTANCE or PROFILE
+    
+    // The current profile drive, if there is one.
+    private MotionProfile profile;          // The profile being followed
+    private long profileStartTime = 0;      // When it started (us)
+    private double profileStartDistance = 0.0; // Distance when it started
+    
+    // Encoders, and what they read at the last update. Distances are in 
+    // metres, and the heading is in radians (positive is to the right).
+    private Hardware.EncoderInput leftEncoder;
+    private Hardware.EncoderInput rightEncoder;
+    private int leftCount = 0;              // Raw counts, for the black box
+    private int rightCount = 0;
+    private double leftDistance = 0.0;
+    private double rightDistance = 0.0;
+    private double heading = 0.0;
+    private long lastReadTime = 0;          // When they were read (us)
+    private double readInterval = 0.0;      // Seconds between the last two reads
+    
+    // Drives to a distance, and holds the heading while doing it.
+    private PIDController distancePID;
+    private PIDController headingPID;
+    private boolean holdingHeading = false; // True while teleop is driving straight
     
     /**
-     * Constructor - sets up the RobotDrive using the details grabbed from
+     * Constructor - sets up the drive motors using the details grabbed from
      * configuration.
      * @param robot The main robot class
      */
-    public DriveBase(RobotMain robot)
+    public DriveBase(Robot robot)
     {
         // Store the main robot class
         this.robot = robot;
         
         // Set up the drive base
+        Hardware hardware = this.robot.getHardware();
+        Configuration configuration = this.robot.getConfiguration();
         
-        // We're using four Talon motors, two on each side.
-        this.driveBase = new RobotDrive(
-                new Talon(this.robot.getConfiguration().getLeftDriveMotor1()), 
-                new Talon(this.robot.getConfiguration().getLeftDriveMotor2()), 
-                new Talon(this.robot.getConfiguration().getRightDriveMotor1()), 
-                new Talon(this.robot.getConfiguration().getRightDriveMotor2()));
+        this.leftMotor1 = hardware.createTalon(configuration.getLeftDriveMotor1());
+        this.leftMotor2 = hardware.createTalon(configuration.getLeftDriveMotor2());
+        this.rightMotor1 = hardware.createTalon(configuration.getRightDriveMotor1());
+        this.rightMotor2 = hardware.createTalon(configuration.getRightDriveMotor2());
         
-        // Inverts the direction of the motor. Not particularly meaningful with 
-        // this robot - can be changed as required by the drivers.
-        this.driveBase.setInvertedMotor(RobotDrive.MotorType.kFrontLeft, false);
-        this.driveBase.setInvertedMotor(RobotDrive.MotorType.kRearLeft, false);
-        this.driveBase.setInvertedMotor(RobotDrive.MotorType.kFrontRight, false);
-        this.driveBase.setInvertedMotor(RobotDrive.MotorType.kRearRight, false);
+        this.leftEncoder = hardware.createEncoder(configuration.getLeftEncoderA(),
+                configuration.getLeftEncoderB(), configuration.getLeftEncoderReversed());
+        this.rightEncoder = hardware.createEncoder(configuration.getRightEncoderA(),
+                configuration.getRightEncoderB(), configuration.getRightEncoderReversed());
+        
+        // The gains are set each time they are used, in case the 
+        // configuration has been reloaded.
+        this.distancePID = new PIDController(0, 0, 0, 0);
+        this.headingPID = new PIDController(0, 0, 0, 0);
         
         // Zeros the drive, making sure it has no power.
-        this.driveBase.arcadeDrive(0.0, 0.0);
+        this.arcadeDrive(0.0, 0.0);
     }
     
     /**
-     * Drive the robot in tank drive using two joysticks. The joysticks are 
-     * grabbed from the Input class. This is called when under operator control.
+     * Drive the robot in tank drive using two joysticks. The joystick values
+     * are grabbed from the Input class's snapshot, already shaped with the 
+     * driver's curve. This is called when under operator control.
+     * 
+     * If the drive straight assist is turned on, and both sticks are pushed
+     * about the same amount, the heading PID takes over the steering so that
+     * the robot goes straight.
      */
     public void Drive()
     {
-        driveBase.tankDrive(this.robot.getInput().getLeftJoystick(), this.robot.getInput().getRightJoystick(), true);
+        Input input = this.robot.getInput();
+        Configuration configuration = this.robot.getConfiguration();
+        
+        // The band is checked with where the sticks actually are, but the
+        // power comes from the driver's curve.
+        double left = input.getAxis(Input.LEFT, Input.Y_AXIS);
+        double right = input.getAxis(Input.RIGHT, Input.Y_AXIS);
+        double leftShaped = input.getDriveAxis(Input.LEFT);
+        double rightShaped = input.getDriveAxis(Input.RIGHT);
+        
+        this.readEncoders();
+        
+        if (configuration.getDriveStraightAssist()
+                && Math.abs(left - right) < configuration.getDriveStraightBand()
+                && Math.abs(left + right) > configuration.getDriveStraightBand())
+        {
+            // Just started going straight - hold the heading we have now.
+            if (this.holdingHeading == false)
+            {
+                this.holdingHeading = true;
+                this.startHeadingPID();
+            }
+            
+            double forward = (leftShaped + rightShaped) / 2;
+            double turn = this.headingPID.calculate(this.heading, this.readInterval);
+            
+            this.setLeftRightMotorOutputs(forward + turn, forward - turn);
+        }
+        else
+        {
+            this.holdingHeading = false;
+            this.tankDrive(leftShaped, rightShaped);
+        }
     }
     
     /**
-     * Drives the robot in a straight line at half power for a specified number
-     * of seconds.
+     * Starts driving the robot in a straight line at half power for a 
+     * specified number of seconds. This doesn't use the encoders - see
+     * driveDistance() for that. This returns straight away - update() needs
+     * to be called periodically until isDriving() returns false.
      * @param time  Number of seconds to drive for.
      */
     public void driveForward(double time)
@@ -76,7 +169,8 @@ public class DriveBase
     /**
      * Allows the speed and duration to be set, drives at the specified
      * power (between -1 and 1) for the specified time. Providing a negative
-     * value drives in reverse.
+     * value drives in reverse. As with driveForward(time), this returns 
+     * straight away and is serviced by update().
      * @param speed the power, between -1 and 1.
      * @param time the time to drive for in seconds.
      */
@@ -86,37 +180,392 @@ public class DriveBase
     }
     
     /**
-     * Drives the robot at the specified speed, angle and for the specified
-     * time. I don't expect it to be called directly, as in autonomous mode 
-     * we only want to drive forward, but it is here in case it proves
-     * useful. Coupled with other features, such as a vision system, it could
-     * be very useful.
+     * Starts driving the robot at the specified speed, angle and for the 
+     * specified time. I don't expect it to be called directly, as in 
+     * autonomous mode we only want to drive forward, but it is here in case it
+     * proves useful. Coupled with other features, such as a vision system, it 
+     * could be very useful.
+     * 
+     * This used to loop until the time was up, which used all of the CPU and
+     * stopped anything else from happening. Now it just records the command,
+     * and update() keeps the motors going until the time runs out. Starting a
+     * new drive replaces the current one.
      * @param speed the power to drive at, between -1 and 1
      * @param angle value for the y axis, handles rotation, between -1 and 1.
      * @param time  the number of seconds to drive for.
      */
     public void drive(double speed, double angle, double time)
     {
-        // Ugly solution, but functional dor now. First we grab the current time.
-        long stoptime = System.currentTimeMillis() + 1;
+        // Record the command. As the time is in seconds, but the hardware 
+        // clock is in microseconds, the time is multipled by 1000000. 
+        // (1 second = 1000000 microseconds).
+        this.commandSpeed = speed;
+        this.commandAngle = angle;
+        this.commandStopTime = this.robot.getHardware().getTime() + (long)(time * 1000000);
+        this.commandRunning = true;
+        this.commandType = TIMED;
+        
+        // Get the motors going straight away, rather than waiting for the 
+        // next update.
+        this.arcadeDrive(speed, angle);
+    }
+    
+    /**
+     * Starts driving a set distance, using the encoders. It drives straight 
+     * (holding the heading it had when this was called), and slows down as it
+     * gets close. As with drive(), this returns straight away and update() 
+     * does the work. Providing a negative distance drives in reverse.
+     * @param distance how far to go, in metres
+     * @param maxSpeed the most power to use, between 0 and 1
+     */
+    public void driveDistance(double distance, double maxSpeed)
+    {
+        Configuration configuration = this.robot.getConfiguration();
+        
+        this.readEncoders();
+        
+        this.distancePID.setGains(configuration.getDistanceP(), configuration.getDistanceI(),
+                configuration.getDistanceD(), configuration.getDistanceIntegralLimit());
+        this.distancePID.setMaxOutput(Math.abs(maxSpeed));
+        this.distancePID.setSetpoint(this.getDistance() + distance);
+        this.distancePID.reset();
+        
+        this.startHeadingPID();
+        
+        this.commandRunning = true;
+        this.commandType = DISTANCE;
+    }
+    
+    /**
+     * Starts following a motion profile, using the encoders. The profile 
+     * needs to have been generated beforehand - this only looks up where the
+     * robot should be each loop. It holds the heading it had when this was
+     * called. As with drive(), this returns straight away and update() does 
+     * the work.
+     * @param profile the profile to follow
+     */
+    public void followProfile(MotionProfile profile)
+    {
+        Configuration configuration = this.robot.getConfiguration();
+        
+        this.readEncoders();
+        
+        this.profile = profile;
+        this.profileStartTime = this.robot.getHardware().getTime();
+        this.profileStartDistance = this.getDistance();
+        
+        // The PID only has to correct for the profile being off, so it can 
+        // use the whole range.
+        this.distancePID.setGains(configuration.getDistanceP(), configuration.getDistanceI(),
+                configuration.getDistanceD(), configuration.getDistanceIntegralLimit());
+        this.distancePID.setMaxOutput(1.0);
+        this.distancePID.setSetpoint(this.profileStartDistance);
+        this.distancePID.reset();
+        
+        this.startHeadingPID();
+        
+        this.commandRunning = true;
+        this.commandType = PROFILE;
+    }
+    
+    /**
+     * One loop of following a profile. The power is the profile's velocity 
+     * (turned into power), plus whatever the distance PID thinks is needed to
+     * catch up to where the profile says we should be.
+     */
+    private void updateProfile()
+    {
+        Configuration configuration = this.robot.getConfiguration();
+        
+        this.readEncoders();
+        
+        int index = this.profile.getIndex(this.robot.getHardware().getTime() - this.profileStartTime);
+        
+        this.distancePID.setSetpoint(this.profileStartDistance + this.profile.getPosition(index));
+        
+        double forward = this.profile.getVelocity(index) * configuration.getProfileKV()
+                + this.distancePID.calculate(this.getDistance(), this.readInterval);
+        double turn = this.headingPID.calculate(this.heading, this.readInterval);
+        
+        // At the end of the profile, close enough and slowed down - stop.
+        if (index == this.profile.getLength() - 1
+                && this.distancePID.onTarget(configuration.getDistanceTolerance(),
+                        configuration.getDistanceSettleSpeed()))
+        {
+            this.cancelDrive();
+        }
+        else
+        {
+            this.setLeftRightMotorOutputs(forward + turn, forward - turn);
+        }
+    }
+    
+    /**
+     * Services the current timed, distance or profile drive. This should be 
+     * called periodically (every control loop) while a drive is running. It 
+     * keeps the motors going until the time is up (or the distance is 
+     * reached), and then turns them off.
+     * @return true if the drive is still running
+     */
+    public boolean update()
+    {
+        if (this.commandRunning && this.commandType == PROFILE)
+        {
+            this.updateProfile();
+        }
+        else if (this.commandRunning && this.commandType == DISTANCE)
+        {
+            this.readEncoders();
+            
+            double forward = this.distancePID.calculate(this.getDistance(), this.readInterval);
+            double turn = this.headingPID.calculate(this.heading, this.readInterval);
+            
+            // Close enough, and slowed down enough not to coast past - stop.
+            if (this.distancePID.onTarget(this.robot.getConfiguration().getDistanceTolerance(),
+                    this.robot.getConfiguration().getDistanceSettleSpeed()))
+            {
+                this.cancelDrive();
+            }
+            else
+            {
+                this.setLeftRightMotorOutputs(forward + turn, forward - turn);
+            }
+        }
+        else if (this.commandRunning)
+        {
+            // Still time left, so keep driving. This also keeps the motor
+            // safety timer happy.
+            if (this.robot.getHardware().getTime() < this.commandStopTime)
+            {
+                this.arcadeDrive(this.commandSpeed, this.commandAngle);
+            }
+            
+            // Now that the step time has passed, turn off the motors.
+            else
+            {
+                this.cancelDrive();
+            }
+        }
+        
+        return this.commandRunning;
+    }
+    
+    /**
+     * Stops the current timed drive (if there is one) and turns off the 
+     * motors.
+     */
+    public void cancelDrive()
+    {
+        if (this.commandRunning)
+        {
+            this.commandRunning = false;
+            this.arcadeDrive(0, 0);
+        }
+    }
+    
+    /**
+     * Returns whether or not a timed drive is in progress. Once this is false,
+     * the last drive has either finished or been cancelled.
+     * @return true if the robot is still carrying out a timed drive
+     */
+    public boolean isDriving()
+    {
+        return this.commandRunning;
+    }
+    
+    /**
+     * Reads the encoders, and works out the distance each side has gone and
+     * the heading.
+     */
+    private void readEncoders()
+    {
+        Configuration configuration = this.robot.getConfiguration();
+        long now = this.robot.getHardware().getTime();
         
-        // Short pause - 1 millisecond.
-        while (System.currentTimeMillis() < stoptime) {}
+        this.readInterval = (this.lastReadTime == 0) ? 0.0 : (now - this.lastReadTime) / 1000000.0;
+        this.lastReadTime = now;
         
-        // Set how long to drive for. As the time is in seconds, but we're using
-        // millisecond, the time is multipled by 1000. 
-        // (1 second = 1000 milliseconds).
-        stoptime = System.currentTimeMillis() + (long)(time * 1000);
+        this.leftCount = this.leftEncoder.get();
+        this.rightCount = this.rightEncoder.get();
+        this.leftDistance = this.leftCount * configuration.getEncoderDistancePerPulse();
+        this.rightDistance = this.rightCount * configuration.getEncoderDistancePerPulse();
+        this.heading = (this.leftDistance - this.rightDistance) / configuration.getTrackWidth();
+    }
+    
+    /**
+     * Sets up the heading PID to hold the current heading.
+     */
+    private void startHeadingPID()
+    {
+        Configuration configuration = this.robot.getConfiguration();
         
-        // Active loop. Keep looping for as long as the current time is less
-        // than the target time.
-        while (System.currentTimeMillis() < stoptime) 
+        this.headingPID.setGains(configuration.getHeadingP(), configuration.getHeadingI(),
+                configuration.getHeadingD(), configuration.getHeadingIntegralLimit());
+        this.headingPID.setSetpoint(this.heading);
+        this.headingPID.reset();
+    }
+    
+    /**
+     * Sets both encoders back to zero.
+     */
+    public void resetEncoders()
+    {
+        this.leftEncoder.reset();
+        this.rightEncoder.reset();
+        this.readEncoders();
+    }
+    
+    /**
+     * Returns how far the robot has gone - the average of the two sides.
+     * @return the distance in metres, as of the last update
+     */
+    public double getDistance()
+    {
+        return (this.leftDistance + this.rightDistance) / 2;
+    }
+    
+    /**
+     * Returns the heading, worked out from the difference between the sides.
+     * @return the heading in radians (positive is to the right), as of the 
+     * last update
+     */
+    public double getHeading()
+    {
+        return this.heading;
+    }
+    
+    /**
+     * Returns the left encoder's raw count, as of the last update.
+     * @return the count
+     */
+    public int getLeftCount()
+    {
+        return this.leftCount;
+    }
+    
+    /**
+     * Returns the right encoder's raw count, as of the last update.
+     * @return the count
+     */
+    public int getRightCount()
+    {
+        return this.rightCount;
+    }
+    
+    /**
+     * Returns the power last sent to the left side.
+     * @return the left power, between -1 and 1
+     */
+    public double getLeftOutput()
+    {
+        return this.leftMotor1.get();
+    }
+    
+    /**
+     * Returns the power last sent to the right side. This is reversed, as 
+     * the right motors face the other way.
+     * @return the right power, between -1 and 1
+     */
+    public double getRightOutput()
+    {
+        return this.rightMotor1.get();
+    }
+    
+    /**
+     * Tank drive - each side is given its own power. The inputs are not 
+     * squared here, as they have already been through the driver's curve in
+     * Input (which does the squaring RobotDrive.tankDrive(left, right, true)
+     * used to do, and more).
+     * @param left the power for the left side, between -1 and 1
+     * @param right the power for the right side, between -1 and 1
+     */
+    private void tankDrive(double left, double right)
+    {
+        this.setLeftRightMotorOutputs(left, right);
+    }
+    
+    /**
+     * Arcade drive - one value for going forward and back, and one for 
+     * turning. This does the same maths as RobotDrive.arcadeDrive(move, 
+     * rotate), including squaring the inputs.
+     * @param move the forward/back power, between -1 and 1
+     * @param rotate the turning power, between -1 and 1
+     */
+    private void arcadeDrive(double move, double rotate)
+    {
+        move = this.square(this.limit(move));
+        rotate = this.square(this.limit(rotate));
+        
+        double left;
+        double right;
+        
+        if (move > 0.0)
         {
-            // Drive forward.
-            this.driveBase.arcadeDrive(speed, angle);
+            if (rotate > 0.0)
+            {
+                left = move - rotate;
+                right = Math.max(move, rotate);
+            }
+            else
+            {
+                left = Math.max(move, -rotate);
+                right = move + rotate;
+            }
+        }
+        else
+        {
+            if (rotate > 0.0)
+            {
+                left = -Math.max(-move, rotate);
+                right = move + rotate;
+            }
+            else
+            {
+                left = move - rotate;
+                right = -Math.max(-move, -rotate);
+            }
         }
         
-        // Now that the step time has passed, turn off the motors.
-        this.driveBase.arcadeDrive(0,0);
+        this.setLeftRightMotorOutputs(left, right);
+    }
+    
+    /**
+     * Sends the power to each side. As with RobotDrive, the right side is 
+     * reversed, as its motors face the other way.
+     * @param left the power for the left side, between -1 and 1
+     * @param right the power for the right side, between -1 and 1
+     */
+    private void setLeftRightMotorOutputs(double left, double right)
+    {
+        left = this.limit(left);
+        right = -this.limit(right);
+        
+        if (this.leftInverted) left = -left;
+        if (this.rightInverted) right = -right;
+        
+        this.leftMotor1.set(left);
+        this.leftMotor2.set(left);
+        this.rightMotor1.set(right);
+        this.rightMotor2.set(right);
+    }
+    
+    /**
+     * Keeps a value between -1 and 1.
+     * @param value the value to limit
+     * @return the limited value
+     */
+    private double limit(double value)
+    {
+        return Math.max(-1.0, Math.min(1.0, value));
+    }
+    
+    /**
+     * Squares a value, keeping its sign.
+     * @param value the value to square
+     * @return the squared value
+     */
+    private double square(double value)
+    {
+        return (value >= 0.0) ? (value * value) : -(value * value);
     }
 }
@@ -0,0 +1,262 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * FeedbackLogger gets feedback messages out of the control loop. log() just
+ * puts the message in a queue and returns - the printing to the console and 
+ * the driver station LCD is done later by a low priority thread, so the 
+ * control loop never has to wait for it.
+ * 
+ * The queue is a ring buffer set up once. If the same message is logged 
+ * again before the last one has been printed, it is counted rather than 
+ * queued twice, and printed once with the count. The top line of the LCD 
+ * shows the most recent message. The other lines show whatever setStatus() 
+ * was last given for them, such as the loop timing. The LCD is only updated
+ * every so often, as updating it is slow.
+ * 
+ * If the thread isn't started (e.g. in the simulator), drain() can be called
+ * directly instead.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class FeedbackLogger implements Runnable
+{
+    private Hardware hardware;          // Where the LCD is
+    private long displayPeriod;         // Time between LCD updates (us)
+    private PrintStream console = System.out; // The console, or null for none
+    
+    // The queue. Guarded by synchronizing on this.
+    private String[] messages;          // The ring buffer
+    private int[] repeats;              // Times each message was logged
+    private boolean[] displays;         // Whether each one goes on the LCD
+    private int head = 0;               // Next message to print
+    private int count = 0;              // Messages waiting
+    private long dropped = 0;           // Messages lost because it was full
+    
+    // The LCD lines below the messages. Also guarded by synchronizing on this.
+    private String[] status = new String[Hardware.DISPLAY_LINES];
+    private boolean statusChanged = false;
+    
+    // Only used by drain().
+    private String displayMessage = null;   // Latest message for the LCD
+    private long lastDisplayTime = 0;       // When the LCD was last updated
+    private String[] shown = new String[Hardware.DISPLAY_LINES]; // On the LCD
+    
+    /**
+     * Constructor - sets up the queue.
+     * @param hardware the hardware, which provides the LCD and the time
+     * @param capacity the most messages that can be waiting at once
+     * @param displayPeriod the time between LCD updates, in milliseconds
+     */
+    public FeedbackLogger(Hardware hardware, int capacity, int displayPeriod)
+    {
+        this.hardware = hardware;
+        this.displayPeriod = displayPeriod * 1000L;
+        this.messages = new String[capacity];
+        this.repeats = new int[capacity];
+        this.displays = new boolean[capacity];
+    }
+    
+    /**
+     * Starts the thread that prints the messages. It runs at the lowest 
+     * priority, so it only gets the CPU when the control loop is sleeping.
+     */
+    public void start()
+    {
+        Thread thread = new Thread(this);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+    
+    /**
+     * Queues a message for the console and the LCD. This never waits for 
+     * either of them.
+     * @param message the message to log
+     */
+    public void log(String message)
+    {
+        this.log(message, true);
+    }
+    
+    /**
+     * Queues a message, for the console and, if it is wanted there, the LCD.
+     * Messages too long to read on the LCD can be kept off it.
+     * @param message the message to log
+     * @param display true to show it on the LCD as well
+     */
+    public synchronized void log(String message, boolean display)
+    {
+        // Same as the last message, and it hasn't been printed yet - just 
+        // count it.
+        if (this.count > 0)
+        {
+            int tail = (this.head + this.count - 1) % this.messages.length;
+            
+            if (this.messages[tail].equals(message))
+            {
+                this.repeats[tail]++;
+                return;
+            }
+        }
+        
+        if (this.count == this.messages.length)
+        {
+            this.dropped++;
+            return;
+        }
+        
+        int tail = (this.head + this.count) % this.messages.length;
+        this.messages[tail] = message;
+        this.repeats[tail] = 1;
+        this.displays[tail] = display;
+        this.count++;
+        
+        this.notify();
+    }
+    
+    /**
+     * Sets what one of the LCD lines below the messages shows, until it is
+     * set again. It goes on the LCD with the next update.
+     * @param line the line, from 1 (just below the messages) to 
+     * Hardware.DISPLAY_LINES - 1
+     * @param text what to show, which should fit in Hardware.DISPLAY_COLUMNS
+     */
+    public synchronized void setStatus(int line, String text)
+    {
+        this.status[line] = text;
+        this.statusChanged = true;
+    }
+    
+    /**
+     * The thread. Prints whatever is waiting, then sleeps until there is 
+     * something new or the LCD is due an update.
+     */
+    public void run()
+    {
+        while (true)
+        {
+            this.drain();
+            
+            synchronized (this)
+            {
+                try
+                {
+                    if (this.count == 0)
+                    {
+                        this.wait(Math.max(1, this.displayPeriod / 1000));
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // Just go around again.
+                }
+            }
+        }
+    }
+    
+    /**
+     * Prints every message that is waiting to the console, and updates the 
+     * LCD with the latest one if it is due.
+     */
+    public void drain()
+    {
+        while (true)
+        {
+            String message;
+            int repeat;
+            boolean display;
+            
+            // Only hold the lock long enough to take the message off.
+            synchronized (this)
+            {
+                if (this.count == 0)
+                {
+                    break;
+                }
+                
+                message = this.messages[this.head];
+                repeat = this.repeats[this.head];
+                display = this.displays[this.head];
+                this.messages[this.head] = null;
+                this.head = (this.head + 1) % this.messages.length;
+                this.count--;
+            }
+            
+            if (this.console != null)
+            {
+                this.console.println(repeat > 1 ? message + " (x" + repeat + ")" : message);
+            }
+            
+            if (display)
+            {
+                this.displayMessage = message;
+            }
+        }
+        
+        long now = this.hardware.getTime();
+        
+        if (now - this.lastDisplayTime < this.displayPeriod)
+        {
+            return;
+        }
+        
+        // Copy the status lines, so the lock isn't held while the LCD is 
+        // updated.
+        boolean changed;
+        
+        synchronized (this)
+        {
+            changed = this.statusChanged;
+            this.statusChanged = false;
+            
+            for (int i = 1; i < Hardware.DISPLAY_LINES; i++)
+            {
+                this.shown[i] = this.status[i];
+            }
+        }
+        
+        if (this.displayMessage != null || changed)
+        {
+            if (this.displayMessage != null)
+            {
+                this.shown[0] = this.displayMessage;
+            }
+            
+            this.hardware.display(this.shown);
+            this.displayMessage = null;
+            this.lastDisplayTime = now;
+        }
+    }
+    
+    /**
+     * Turns printing to the console on or off. The LCD is always updated.
+     * @param console true to print to the console
+     */
+    public void setConsole(boolean console)
+    {
+        this.console = console ? System.out : null;
+    }
+    
+    /**
+     * Sends the console messages somewhere else. The benchmarks use this to
+     * time the printing without filling the screen.
+     * @param console where to print the messages, or null for nowhere
+     */
+    public void setConsole(PrintStream console)
+    {
+        this.console = console;
+    }
+    
+    // Accessors
+    public synchronized int getWaiting() { return this.count; }
+    public synchronized long getDropped() { return this.dropped; }
+}
@@ -0,0 +1,140 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * Hardware hands out the electronic parts of the robot - reed switches, 
+ * solenoids, motor controllers, joysticks and so on. The rest of the code only 
+ * talks to the interfaces in here, rather than the WPILib classes, so the same
+ * logic can be run on the robot (WPILibHardware) or on a computer with 
+ * nothing plugged in (SimulatedHardware). Nothing in here uses a WPILib type,
+ * so the simulator doesn't need WPILib at all.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public interface Hardware 
+{
+    // The driver station LCD - 6 lines of 21 characters.
+    public static final int DISPLAY_LINES = 6;
+    public static final int DISPLAY_COLUMNS = 21;
+    
+    /**
+     * A digital input, such as a reed switch.
+     */
+    public interface DigitalSensor
+    {
+        public boolean get();
+    }
+    
+    /**
+     * A single solenoid. True turns it on.
+     */
+    public interface SolenoidOutput
+    {
+        public void set(boolean on);
+        public boolean get();
+    }
+    
+    /**
+     * A motor controller (Victor or Talon). Speed is between -1 and 1.
+     */
+    public interface MotorOutput
+    {
+        public void set(double speed);
+        public double get();
+    }
+    
+    /**
+     * A joystick on the driver station. The buttons all come back at once, 
+     * packed into an int - bit (n - 1) is button n.
+     */
+    public interface JoystickInput
+    {
+        public double getRawAxis(int axis);
+        public int getButtons();
+    }
+    
+    /**
+     * The air compressor. The pressure switch (on when the tanks are full) 
+     * is handed out as a sensor, so it can go in the sensor snapshot.
+     */
+    public interface CompressorOutput
+    {
+        public void start();
+        public void stop();
+        public boolean enabled();
+        public DigitalSensor getPressureSwitch();
+    }
+    
+    /**
+     * A quadrature encoder. The count goes up as the wheel goes forward.
+     */
+    public interface EncoderInput
+    {
+        public int get();
+        public void reset();
+    }
+    
+    /**
+     * The control board (the enhanced IO board on the driver station). 
+     * Inputs are numbered the same as on the board.
+     */
+    public interface ControlBoardInput
+    {
+        public boolean getDigital(int channel) throws IOException;
+    }
+    
+    public DigitalSensor createDigitalInput(int channel);
+    public SolenoidOutput createSolenoid(int channel);
+    public MotorOutput createVictor(int channel);
+    public MotorOutput createTalon(int channel);
+    public JoystickInput createJoystick(int port);
+    public CompressorOutput createCompressor(int pressureSwitchChannel, int relayChannel);
+    public EncoderInput createEncoder(int aChannel, int bChannel, boolean reverse);
+    
+    /**
+     * Returns the control board, if there is one. 
+     * @return the control board, or null if there isn't one
+     */
+    public ControlBoardInput getControlBoard();
+    
+    /**
+     * Returns the current time in microseconds. Everything that needs to know
+     * the time should use this, so that the simulator can run faster than 
+     * real time.
+     * @return the current time, in microseconds
+     */
+    public long getTime();
+    
+    /**
+     * Opens a file to write to, replacing anything already in it. 
+     * @param name the name of the file
+     * @return the stream to write to
+     * @throws IOException if the file can't be opened
+     */
+    public OutputStream openOutputFile(String name) throws IOException;
+    
+    /**
+     * Opens a file to read from.
+     * @param name the name of the file
+     * @return the stream to read from
+     * @throws IOException if the file doesn't exist or can't be opened
+     */
+    public InputStream openInputFile(String name) throws IOException;
+    
+    /**
+     * Shows text to the drivers on the LCD, replacing what was there. Lines
+     * longer than DISPLAY_COLUMNS are cut off.
+     * @param lines the text for each line from the top (DISPLAY_LINES of 
+     * them), or null to leave a line blank
+     */
+    public void display(String[] lines);
+}
@@ -7,25 +7,93 @@
 
 package edu.wpi.first.wpilibj.templates;
 
-import edu.wpi.first.wpilibj.*;
-import edu.wpi.first.wpilibj.DriverStationEnhancedIO.*;
+import java.io.*;
 
 /**
  * The Input class is intended to handled joysticks and the control panel.
  * By abstracting out the code, we end up in a better place if we need to make 
  * modifications, as it is more likely that we only need to make changes in
  * the one place.
+ * 
+ * Each control loop starts with update(), which reads every axis and button
+ * of the three joysticks once and keeps them in arrays that are set up when
+ * the robot starts. Everything else (the button methods below, and the drive)
+ * reads from those arrays, so each loop sees one consistent set of inputs.
+ * 
+ * update() also compares the controls with the last loop, and adds an event
+ * to the event queue whenever one is pressed, released or has been held down
+ * for a while. The robot acts on those events, rather than checking every
+ * button every loop, so each press does its job once.
+ * 
+ * The drive sticks are also shaped in update(), using the current driver's
+ * curve (see InputCurve). Every driver's curve is worked out when the robot
+ * starts, and Robot works out a new set when the configuration is reloaded 
+ * and swaps them in with setCurves(), so shaping a stick is just a table 
+ * lookup. The driver can be changed at any time, either in the configuration
+ * file or with setDriver().
  *      
  * @author adam.jenkins@unisa.edu.au
  * @version 1.0
  */
 public class Input 
 {
+    // Joysticks, in the order they are stored in the snapshot.
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int CONTROL = 2;
+    public static final int JOYSTICKS = 3;
+    
+    // Axes. These are numbered the same as Joystick.getRawAxis(). The 
+    // joysticks we use have three: X, Y and the throttle.
+    public static final int X_AXIS = 1;
+    public static final int Y_AXIS = 2;
+    public static final int AXES_PER_JOYSTICK = 3;
+    
+    // Actions the drivers can ask for. These are also the bit numbers in 
+    // getActions(), and are in priority order - if more than one is held, the
+    // lowest number wins.
+    public static final int LOWER_BAS = 0;
+    public static final int RAISE_BAS = 1;
+    public static final int SHOOT = 2;
+    public static final int LOWER_CATAPULT = 3;
+    public static final int DROP_BALL = 4;
+    public static final int RETRIEVE_BALL = 5;
+    public static final int ACTIONS = 6;
+    
+    // Event types. An event is the type and the action packed into an int:
+    // (type << 8) | action. Use getEventType() and getEventAction() to unpack.
+    public static final int PRESSED = 1;
+    public static final int RELEASED = 2;
+    public static final int HELD = 3;
+    
+    // Most events that can be waiting at once.
+    private static final int EVENT_CAPACITY = 32;
+    
+    private Robot robot;                // Reference to the main robot class
+    
     // Inputs
-    private Joystick leftJoystick;
-    private Joystick rightJoystick;
-    private Joystick controlJoystick;
-    private DriverStationEnhancedIO controlBoard;
+    private Hardware.JoystickInput leftJoystick;
+    private Hardware.JoystickInput rightJoystick;
+    private Hardware.JoystickInput controlJoystick;
+    private Hardware.ControlBoardInput controlBoard;
+    
+    // The snapshot, updated once per loop. Buttons are packed into an int per
+    // joystick (bit n - 1 is button n). Axes are stored joystick by joystick,
+    // so axis a of joystick j is at j * AXES_PER_JOYSTICK + (a - 1).
+    private Hardware.JoystickInput[] joysticks = new Hardware.JoystickInput[JOYSTICKS];
+    private int[] buttons = new int[JOYSTICKS];
+    private double[] axes = new double[JOYSTICKS * AXES_PER_JOYSTICK];
+    
+    // Edge detection. Each action has a bit in these masks.
+    private int actions = 0;            // Actions held at the last update()
+    private int heldReported = 0;       // Held actions already reported
+    private long[] pressedTime = new long[ACTIONS]; // When each was pressed
+    private InputEventQueue events = new InputEventQueue(EVENT_CAPACITY);
+    
+    // Input shaping. curves[d - 1] is driver d's curve.
+    private InputCurve[] curves = new InputCurve[Configuration.DRIVERS];
+    private int driver = 1;                     // Whose curve is being used
+    private double[] driveAxes = new double[JOYSTICKS]; // Shaped Y axes
     
     // Values for the different buttons on the button board (if working)
     //private int lowerCatapultID = 1;
@@ -43,15 +111,247 @@ public class Input
     // Note that the BAS is raised and lowered with the joystick forward and back
     
     /**
-     * Constructor - sets the two joysticks and the IO board.
+     * Constructor - sets the joysticks and the IO board.
+     * @param robot the main robot class
+     */
+    public Input(Robot robot)
+    {
+        this.robot = robot;
+        
+        this.leftJoystick = robot.getHardware().createJoystick(1);
+        this.rightJoystick = robot.getHardware().createJoystick(2);
+        this.controlJoystick = robot.getHardware().createJoystick(3);
+        
+        this.joysticks[LEFT] = this.leftJoystick;
+        this.joysticks[RIGHT] = this.rightJoystick;
+        this.joysticks[CONTROL] = this.controlJoystick;
+        
+        this.controlBoard = robot.getHardware().getControlBoard();
+        
+        for (int d = 0; d < Configuration.DRIVERS; d++)
+        {
+            this.curves[d] = new InputCurve();
+        }
+        
+        generateCurves(robot.getConfiguration(), this.curves);
+        this.setDriver(robot.getConfiguration().getDriver());
+    }
+    
+    /**
+     * Reads every axis and button, once, and then adds events for any action
+     * that has been pressed, released or held since the last update. Call 
+     * this at the start of each control loop. Nothing is allocated, so it is
+     * fine to call it often.
+     */
+    public void update()
+    {
+        for (int j = 0; j < JOYSTICKS; j++)
+        {
+            this.buttons[j] = this.joysticks[j].getButtons();
+            
+            for (int a = 0; a < AXES_PER_JOYSTICK; a++)
+            {
+                this.axes[j * AXES_PER_JOYSTICK + a] = this.joysticks[j].getRawAxis(a + 1);
+            }
+        }
+        
+        InputCurve curve = this.curves[this.driver - 1];
+        
+        this.driveAxes[LEFT] = curve.shape(this.getAxis(LEFT, Y_AXIS));
+        this.driveAxes[RIGHT] = curve.shape(this.getAxis(RIGHT, Y_AXIS));
+        
+        this.updateEvents();
+    }
+    
+    /**
+     * Forgets everything about the last update - the events waiting, and 
+     * which actions were held. Call this at the start of a mode, so nothing is
+     * left over from the last one. Anything still held down at the next 
+     * update() is then a new press, so a button held across the change of
+     * mode still does its job.
+     */
+    public void reset()
+    {
+        this.events.clear();
+        this.actions = 0;
+        this.heldReported = 0;
+    }
+    
+    /**
+     * Works out every driver's curve from a configuration. This is slow, so
+     * it is only done at startup and when the configuration is reloaded, not
+     * in the control loop.
+     * @param configuration the configuration to use
+     * @param curves where to put the curves, one per driver
+     */
+    public static void generateCurves(Configuration configuration, InputCurve[] curves)
+    {
+        for (int d = 1; d <= Configuration.DRIVERS; d++)
+        {
+            curves[d - 1].generate(configuration.getDriverDeadband(d),
+                    configuration.getDriverExpo(d),
+                    configuration.getDriverPower(d),
+                    configuration.getDriverMaxOutput(d));
+        }
+    }
+    
+    /**
+     * Swaps in a new set of curves, worked out with generateCurves(). The 
+     * driver stays the same.
+     * @param curves the new curves, one per driver
+     * @return the old curves, so they can be reused next time
+     */
+    public InputCurve[] setCurves(InputCurve[] curves)
+    {
+        InputCurve[] old = this.curves;
+        this.curves = curves;
+        return old;
+    }
+    
+    /**
+     * Changes whose joystick curve is used. This takes effect at the next
+     * update().
+     * @param driver the driver, from 1 to Configuration.DRIVERS
      */
-    public Input()
+    public void setDriver(int driver)
     {
-        this.leftJoystick = new Joystick(1);
-        this.rightJoystick = new Joystick(2);
-        this.controlJoystick = new Joystick(3);
+        if (driver < 1 || driver > Configuration.DRIVERS)
+        {
+            this.robot.feedback("No driver " + driver + " - using driver 1");
+            driver = 1;
+        }
         
-        this.controlBoard = DriverStation.getInstance().getEnhancedIO();
+        if (driver != this.driver)
+        {
+            this.driver = driver;
+            this.robot.feedback("Driver " + driver);
+        }
+    }
+    
+    /**
+     * Works out which actions are held, and compares them with the last 
+     * update to find the presses and releases.
+     */
+    private void updateEvents()
+    {
+        int newActions = 0;
+        
+        if (this.getAxis(CONTROL, Y_AXIS) < -0.5) newActions |= (1 << LOWER_BAS);
+        if (this.getAxis(CONTROL, Y_AXIS) > 0.5) newActions |= (1 << RAISE_BAS);
+        if (this.getButton(CONTROL, this.shootID)) newActions |= (1 << SHOOT);
+        if (this.getButton(CONTROL, this.lowerCatapultID)) newActions |= (1 << LOWER_CATAPULT);
+        if (this.getButton(CONTROL, this.dropBallID)) newActions |= (1 << DROP_BALL);
+        if (this.getButton(CONTROL, this.retrieveBallID)) newActions |= (1 << RETRIEVE_BALL);
+        
+        int changed = newActions ^ this.actions;
+        
+        // Nothing held and nothing changed - the usual case, so get out early.
+        if (changed == 0 && newActions == 0)
+        {
+            return;
+        }
+        
+        long now = this.robot.getHardware().getTime();
+        long holdTime = this.robot.getConfiguration().getButtonHoldTime() * 1000L;
+        
+        for (int action = 0; action < ACTIONS; action++)
+        {
+            int bit = 1 << action;
+            
+            if ((changed & bit) != 0)
+            {
+                if ((newActions & bit) != 0)
+                {
+                    this.pressedTime[action] = now;
+                    this.events.add((PRESSED << 8) | action);
+                }
+                else
+                {
+                    this.heldReported &= ~bit;
+                    this.events.add((RELEASED << 8) | action);
+                }
+            }
+            
+            // Still held - if it has been long enough, say so (once).
+            else if ((newActions & bit) != 0 && (this.heldReported & bit) == 0
+                    && now - this.pressedTime[action] >= holdTime)
+            {
+                this.heldReported |= bit;
+                this.events.add((HELD << 8) | action);
+            }
+        }
+        
+        this.actions = newActions;
+    }
+    
+    /**
+     * Returns the type of an event.
+     * @param event the event, from the event queue
+     * @return PRESSED, RELEASED or HELD
+     */
+    public static int getEventType(int event)
+    {
+        return event >> 8;
+    }
+    
+    /**
+     * Returns the action an event is about.
+     * @param event the event, from the event queue
+     * @return the action (SHOOT, LOWER_BAS, ...)
+     */
+    public static int getEventAction(int event)
+    {
+        return event & 0xFF;
+    }
+    
+    /**
+     * Returns the action that should be carried out, when more than one is 
+     * held - the one with the lowest number.
+     * @return the action, or -1 if nothing is held
+     */
+    public int getPriorityAction()
+    {
+        for (int action = 0; action < ACTIONS; action++)
+        {
+            if ((this.actions & (1 << action)) != 0)
+            {
+                return action;
+            }
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Returns a button from the snapshot.
+     * @param joystick LEFT, RIGHT or CONTROL
+     * @param button the button number, starting at 1
+     * @return true if the button was down at the last update()
+     */
+    public boolean getButton(int joystick, int button)
+    {
+        return (this.buttons[joystick] & (1 << (button - 1))) != 0;
+    }
+    
+    /**
+     * Returns an axis from the snapshot.
+     * @param joystick LEFT, RIGHT or CONTROL
+     * @param axis the axis number, starting at 1 (X_AXIS, Y_AXIS)
+     * @return the axis value at the last update(), between -1 and 1
+     */
+    public double getAxis(int joystick, int axis)
+    {
+        return this.axes[joystick * AXES_PER_JOYSTICK + (axis - 1)];
+    }
+    
+    /**
+     * Returns a drive stick's Y axis, shaped with the current driver's curve.
+     * @param joystick LEFT or RIGHT
+     * @return the shaped value at the last update(), between -1 and 1
+     */
+    public double getDriveAxis(int joystick)
+    {
+        return this.driveAxes[joystick];
     }
     
     // Note: for various reasons, these return true if the button is up,
@@ -59,79 +359,83 @@ public class Input
     // the input. This should be revisited in the future, but is perfectly
     // fundtional for now.
     
-    public boolean lowerCatapult() throws EnhancedIOException
+    public boolean lowerCatapult() throws IOException
     {
         boolean buttonState = false;
         
         // Grab the status of the shoot button.
         //buttonState = !this.controlBoard.getDigital(this.lowerCatapultID);
-        buttonState = this.controlJoystick.getRawButton(this.lowerCatapultID);
+        buttonState = this.getButton(CONTROL, this.lowerCatapultID);
      
         // Return the shoot button.
         return buttonState;
     }
     
-    public boolean shoot() throws EnhancedIOException
+    public boolean shoot() throws IOException
     {
         boolean buttonState = false;
         
         // Grab the status of the shoot button.
         //buttonState = !this.controlBoard.getDigital(this.shootID);
-        buttonState = this.controlJoystick.getRawButton(this.shootID);
+        buttonState = this.getButton(CONTROL, this.shootID);
      
         // Return the shoot button.
         return buttonState;
     }
     
-    public boolean retrieveBall() throws EnhancedIOException
+    public boolean retrieveBall() throws IOException
     {
         boolean buttonState = false;
         
         // Grab the status of the shoot button.
         //buttonState = !this.controlBoard.getDigital(this.retrieveBallID);
-        buttonState = this.controlJoystick.getRawButton(this.retrieveBallID);
+        buttonState = this.getButton(CONTROL, this.retrieveBallID);
      
         // Return the shoot button.
         return buttonState;
     }
     
-    public boolean lowerBAS() throws EnhancedIOException
+    public boolean lowerBAS() throws IOException
     {
         boolean buttonState = false;
         
         // Grab the status of the shoot button.
         //buttonState = !this.controlBoard.getDigital(this.lowerBasID);
-        buttonState = (this.controlJoystick.getY() < -0.5);
+        buttonState = (this.getAxis(CONTROL, Y_AXIS) < -0.5);
      
         // Return the shoot button.
         return buttonState;
     }
     
-    public boolean dropBall() throws EnhancedIOException
+    public boolean dropBall() throws IOException
     {
         boolean buttonState = false;
         
         // Grab the status of the shoot button.
         //buttonState = (!this.controlBoard.getDigital(this.dropBallID) ||
-        buttonState =  this.controlJoystick.getRawButton(this.dropBallID); 
+        buttonState =  this.getButton(CONTROL, this.dropBallID); 
      
         // Return the shoot button.
         return buttonState;
     }
     
-    public boolean raiseBAS() throws EnhancedIOException
+    public boolean raiseBAS() throws IOException
     {
         boolean buttonState = false;
         
         // Grab the status of the shoot button.
         //buttonState = !this.controlBoard.getDigital(this.raiseBasID);
-        buttonState = (this.controlJoystick.getY() > 0.5); 
+        buttonState = (this.getAxis(CONTROL, Y_AXIS) > 0.5); 
      
         // Return the shoot button.
         return buttonState;
     }
     
     // Accessors
-    public Joystick getLeftJoystick() { return this.leftJoystick; }
-    public Joystick getRightJoystick() { return this.rightJoystick; }
+    public Hardware.JoystickInput getLeftJoystick() { return this.leftJoystick; }
+    public Hardware.JoystickInput getRightJoystick() { return this.rightJoystick; }
+    public int getButtons(int joystick) { return this.buttons[joystick]; }
+    public int getActions() { return this.actions; }
+    public int getDriver() { return this.driver; }
+    public InputEventQueue getEvents() { return this.events; }
 }
@@ -0,0 +1,103 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * A joystick curve - how far the stick is pushed, turned into how much power
+ * the motors get. Each driver has their own, set in the configuration.
+ * 
+ * The curve has three parts:
+ *   - a deadband, so the robot doesn't creep when the stick is let go
+ *   - an expo blend between a straight line and a power curve (x squared,
+ *     x cubed...), so small movements give fine control
+ *   - a maximum output, for drivers who want the robot slower
+ * With no deadband, an expo of 1, a power of 2 and a maximum of 1, it is the
+ * same as the squared inputs RobotDrive used.
+ * 
+ * The sums are only done when the curve is generated. The results go into a
+ * table, and shape() looks the stick position up in it, drawing a straight
+ * line between the two nearest entries. The curve is the same either way, so
+ * the table only covers 0 to 1 and the sign is put back afterwards.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class InputCurve
+{
+    // Number of steps in the table. 100 steps of 0.01 keeps the error well
+    // under what the speed controllers can tell apart.
+    public static final int STEPS = 100;
+    
+    private double[] table = new double[STEPS + 1]; // Output at i / STEPS
+    
+    /**
+     * Constructor. Starts as a straight line (no shaping).
+     */
+    public InputCurve()
+    {
+        this.generate(0.0, 0.0, 1, 1.0);
+    }
+    
+    /**
+     * Works out the table.
+     * @param deadband stick movement to ignore, between 0 and 1
+     * @param expo how much of the power curve to use - 0 is a straight line,
+     * 1 is all power curve
+     * @param power the power of the curve (2 for squared, 3 for cubed)
+     * @param maxOutput the output at full stick, between 0 and 1
+     */
+    public void generate(double deadband, double expo, int power, double maxOutput)
+    {
+        deadband = Math.max(0.0, Math.min(0.99, deadband));
+        expo = Math.max(0.0, Math.min(1.0, expo));
+        power = Math.max(1, power);
+        maxOutput = Math.max(0.0, Math.min(1.0, maxOutput));
+        
+        for (int i = 0; i <= STEPS; i++)
+        {
+            double stick = (double) i / STEPS;
+            
+            // Past the deadband, stretch what is left back out to 0 - 1 so
+            // there's no jump at the edge.
+            double x = (stick <= deadband) ? 0.0 : (stick - deadband) / (1.0 - deadband);
+            
+            double curve = 1.0;
+            
+            for (int p = 0; p < power; p++)
+            {
+                curve *= x;
+            }
+            
+            this.table[i] = ((1.0 - expo) * x + expo * curve) * maxOutput;
+        }
+    }
+    
+    /**
+     * Shapes a stick position.
+     * @param value the stick position, between -1 and 1
+     * @return the shaped value, with the same sign
+     */
+    public double shape(double value)
+    {
+        double position = Math.min(1.0, Math.abs(value)) * STEPS;
+        int index = (int) position;
+        double shaped;
+        
+        if (index >= STEPS)
+        {
+            shaped = this.table[STEPS];
+        }
+        else
+        {
+            shaped = this.table[index]
+                    + (this.table[index + 1] - this.table[index]) * (position - index);
+        }
+        
+        return (value < 0.0) ? -shaped : shaped;
+    }
+}
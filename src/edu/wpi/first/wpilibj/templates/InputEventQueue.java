@@ -0,0 +1,92 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * A fixed size queue of input events. Input adds an event whenever a control
+ * is pressed, released or held, and Robot takes them off again each loop. 
+ * Events are just ints (see Input for what they mean), and the queue is a 
+ * ring buffer set up once, so nothing is allocated while the robot is running.
+ * 
+ * If the queue fills up (which would mean nothing is reading it), new events
+ * are dropped and counted rather than overwriting ones that haven't been seen.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class InputEventQueue 
+{
+    // Value returned by next() when there are no events.
+    public static final int NONE = -1;
+    
+    private int[] events;               // The ring buffer
+    private int head = 0;               // Next event to take off
+    private int count = 0;              // Number of events waiting
+    private long dropped = 0;           // Events lost because it was full
+    
+    /**
+     * Constructor - sets up the buffer.
+     * @param capacity the most events that can be waiting at once
+     */
+    public InputEventQueue(int capacity)
+    {
+        this.events = new int[capacity];
+    }
+    
+    /**
+     * Adds an event to the end of the queue.
+     * @param event the event to add
+     * @return false if the queue was full and the event was dropped
+     */
+    public boolean add(int event)
+    {
+        if (this.count == this.events.length)
+        {
+            this.dropped++;
+            return false;
+        }
+        
+        this.events[(this.head + this.count) % this.events.length] = event;
+        this.count++;
+        
+        return true;
+    }
+    
+    /**
+     * Takes the next event off the front of the queue.
+     * @return the event, or NONE if there aren't any
+     */
+    public int next()
+    {
+        if (this.count == 0)
+        {
+            return NONE;
+        }
+        
+        int event = this.events[this.head];
+        this.head = (this.head + 1) % this.events.length;
+        this.count--;
+        
+        return event;
+    }
+    
+    /**
+     * Throws away any events that are waiting. Used at the start of each mode,
+     * so presses from the last one aren't acted on.
+     */
+    public void clear()
+    {
+        this.head = 0;
+        this.count = 0;
+    }
+    
+    // Accessors
+    public boolean isEmpty() { return this.count == 0; }
+    public int size() { return this.count; }
+    public long getDropped() { return this.dropped; }
+}
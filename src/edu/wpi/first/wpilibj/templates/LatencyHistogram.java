@@ -0,0 +1,170 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * Times something that happens over and over, such as a piston moving from
+ * one end to the other, and keeps a histogram of how long it took. start() is
+ * called when the solenoid is switched, and finish() when the reed switch
+ * says the piston got there.
+ * 
+ * The histogram has fixed buckets (BUCKET_TIME wide), set up when it is
+ * created, so timing doesn't allocate anything. Anything longer than the last
+ * bucket goes in the last bucket. The percentiles are worked out from the
+ * buckets, so they are only as exact as the bucket width, but the maximum is
+ * kept exactly.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class LatencyHistogram
+{
+    // 10ms buckets up to 2 seconds. Pistons that take longer than that are
+    // broken anyway.
+    public static final long BUCKET_TIME = 10000;   // Microseconds
+    public static final int BUCKETS = 200;
+    
+    private String name;                // Used in the report
+    private int[] buckets = new int[BUCKETS];
+    private int count = 0;              // Times recorded
+    private long max = 0;               // Longest time (us)
+    private long last = 0;              // Most recent time (us)
+    
+    private long startTime = -1;        // When timing started, -1 if not
+    
+    /**
+     * Constructor.
+     * @param name what is being timed, for the report
+     */
+    public LatencyHistogram(String name)
+    {
+        this.name = name;
+    }
+    
+    /**
+     * Starts timing.
+     * @param now the current time (us)
+     */
+    public void start(long now)
+    {
+        this.startTime = now;
+    }
+    
+    /**
+     * Stops timing without recording anything - for example, if the piston
+     * was sent back the other way before it got there.
+     */
+    public void cancel()
+    {
+        this.startTime = -1;
+    }
+    
+    /**
+     * Stops timing and records how long it took. Nothing happens if it isn't
+     * timing.
+     * @param now the current time (us)
+     * @return the time taken (us), or -1 if it wasn't timing
+     */
+    public long finish(long now)
+    {
+        if (this.startTime < 0)
+        {
+            return -1;
+        }
+        
+        long latency = now - this.startTime;
+        
+        this.startTime = -1;
+        this.record(latency);
+        
+        return latency;
+    }
+    
+    /**
+     * Adds a time to the histogram.
+     * @param latency the time (us)
+     */
+    public void record(long latency)
+    {
+        int bucket = (int) Math.min(BUCKETS - 1, Math.max(0, latency / BUCKET_TIME));
+        
+        this.buckets[bucket]++;
+        this.count++;
+        this.max = Math.max(this.max, latency);
+        this.last = latency;
+    }
+    
+    /**
+     * Returns a percentile. This is the top of the bucket it falls in, so it
+     * may be up to one bucket too high (but never more than the maximum).
+     * @param percent the percentile, e.g. 95
+     * @return the time (us), or 0 if nothing has been recorded
+     */
+    public long getPercentile(int percent)
+    {
+        if (this.count == 0)
+        {
+            return 0;
+        }
+        
+        // The number of times that have to be at or below the answer.
+        int needed = Math.max(1, (this.count * percent + 99) / 100);
+        int seen = 0;
+        
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += this.buckets[i];
+            
+            if (seen >= needed)
+            {
+                return Math.min(this.max, (i + 1) * BUCKET_TIME);
+            }
+        }
+        
+        return this.max;
+    }
+    
+    /**
+     * Clears the histogram.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            this.buckets[i] = 0;
+        }
+        
+        this.count = 0;
+        this.max = 0;
+        this.last = 0;
+        this.startTime = -1;
+    }
+    
+    /**
+     * Returns a one line report, for the drivers.
+     * @return the report
+     */
+    public String getSummary()
+    {
+        if (this.count == 0)
+        {
+            return this.name + ": no data";
+        }
+        
+        return this.name + ": " + this.count + "x p50 " + (this.getPercentile(50) / 1000)
+                + "ms p95 " + (this.getPercentile(95) / 1000)
+                + "ms max " + (this.max / 1000) + "ms";
+    }
+    
+    // Accessors
+    public String getName() { return this.name; }
+    public int getCount() { return this.count; }
+    public long getMax() { return this.max; }
+    public long getLast() { return this.last; }
+    public boolean isTiming() { return this.startTime >= 0; }
+}
@@ -0,0 +1,362 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * LoopProfiler times each part (section) of the control loop - reading the
+ * joysticks, driving, the BAS and catapult, and so on - so we can see which
+ * one is slow while the robot is running, rather than afterwards.
+ * 
+ * Each section is wrapped in begin() and end(). The time a section takes 
+ * is added up over each cycle of the loop, and at the end of the cycle it is
+ * put in the section's ring buffer, which holds the last WINDOW cycles it 
+ * ran in. The minimum, mean, maximum and percentiles are worked out from 
+ * those when they are asked for, so they always describe the last couple of
+ * seconds. Nothing is allocated while timing (only the summary text is).
+ * 
+ * Feedback can be sent from inside any other section, so a section can be
+ * begun while another is still going. The outer one is paused until the 
+ * inner one ends, so the time is only counted once.
+ * 
+ * The control loop tells the profiler when each cycle starts and ends. If a
+ * cycle goes over its budget, the watchdog trips and records which section
+ * took the most time in that cycle. The first trip after each summary is
+ * reported straight away; the rest are counted.
+ * 
+ * report() prints the full summary on the console, and puts the slowest 
+ * section and the overruns on their own lines of the LCD, as the summary is
+ * far too long for it.
+ * 
+ * Times are in microseconds, from the FPGA timer. (CLDC has no nanosecond
+ * clock, and a microsecond is plenty for this.)
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class LoopProfiler
+{
+    // Sections
+    public static final int INPUT = 0;      // Input.update()
+    public static final int DRIVE = 1;      // DriveBase.Drive()
+    public static final int SENSORS = 2;    // Sensor snapshot and BAS timing
+    public static final int COMMANDS = 3;   // Teleop events and commands
+    public static final int AUTONOMOUS = 4; // Autonomous steps
+    public static final int CATAPULT = 5;   // Catapult.update()
+    public static final int AIR = 6;        // AirSupply.update()
+    public static final int TELEMETRY = 7;  // The black box
+    public static final int FEEDBACK = 8;   // Queueing the feedback
+    public static final int SECTIONS = 9;
+    
+    private static final String[] NAMES = { "input", "drive", "sensors",
+            "commands", "auto", "catapult", "air", "telemetry", "feedback" };
+    
+    // Times kept for each section - about 2.5 seconds at 50 loops a second.
+    public static final int WINDOW = 128;
+    
+    // The LCD lines report() uses - the bottom two.
+    public static final int DISPLAY_LINE = Hardware.DISPLAY_LINES - 2;
+    
+    private Robot robot;                // Reference to the main robot class
+    
+    private int[][] times = new int[SECTIONS][WINDOW]; // Ring buffers (us)
+    private int[] next = new int[SECTIONS];     // Where the next time goes
+    private int[] filled = new int[SECTIONS];   // Times in each buffer
+    private long[] started = new long[SECTIONS];// When begin() was called
+    private int[] outer = new int[SECTIONS];    // Section each one is inside
+    private int open = -1;                      // Innermost open section
+    private int[] scratch = new int[WINDOW];    // For the percentiles
+    
+    // The watchdog
+    private long[] cycleTimes = new long[SECTIONS]; // Time in this cycle (us)
+    private boolean[] ran = new boolean[SECTIONS];  // Ran in this cycle
+    private int trips = 0;              // Cycles over budget
+    private int[] culprits = new int[SECTIONS]; // Trips blamed on each
+    private int lastCulprit = -1;       // Section blamed for the last trip
+    private boolean tripReported = false; // Reported one since the summary
+    
+    /**
+     * Constructor.
+     * @param robot the main robot class
+     */
+    public LoopProfiler(Robot robot)
+    {
+        this.robot = robot;
+    }
+    
+    /**
+     * Starts timing a section.
+     * @param section the section (INPUT, DRIVE, ...)
+     */
+    public void begin(int section)
+    {
+        this.outer[section] = this.open;
+        this.open = section;
+        this.started[section] = this.robot.getHardware().getTime();
+    }
+    
+    /**
+     * Stops timing a section, and adds the time to this cycle's.
+     * @param section the section (INPUT, DRIVE, ...)
+     */
+    public void end(int section)
+    {
+        long time = this.robot.getHardware().getTime() - this.started[section];
+        
+        this.cycleTimes[section] += time;
+        this.ran[section] = true;
+        this.open = this.outer[section];
+        
+        // If this was inside another section, that one was paused - move its
+        // start on by the time this one took.
+        if (this.open >= 0)
+        {
+            this.started[this.open] += time;
+        }
+    }
+    
+    /**
+     * Called by the control loop at the start of each cycle.
+     */
+    public void startCycle()
+    {
+        for (int s = 0; s < SECTIONS; s++)
+        {
+            this.cycleTimes[s] = 0;
+            this.ran[s] = false;
+        }
+        
+        this.open = -1;
+    }
+    
+    /**
+     * Called by the control loop at the end of each cycle. If the cycle went
+     * over budget, the section that took the most time gets the blame.
+     * @param cycleTime how long the cycle took (us)
+     * @param budget how long it should have taken at most (us)
+     */
+    public void endCycle(long cycleTime, long budget)
+    {
+        // Record the time of each section that ran.
+        for (int s = 0; s < SECTIONS; s++)
+        {
+            if (this.ran[s])
+            {
+                this.times[s][this.next[s]] = (int) this.cycleTimes[s];
+                this.next[s] = (this.next[s] + 1) % WINDOW;
+                this.filled[s] = Math.min(WINDOW, this.filled[s] + 1);
+            }
+        }
+        
+        if (cycleTime <= budget)
+        {
+            return;
+        }
+        
+        int culprit = 0;
+        
+        for (int s = 1; s < SECTIONS; s++)
+        {
+            if (this.cycleTimes[s] > this.cycleTimes[culprit])
+            {
+                culprit = s;
+            }
+        }
+        
+        this.trips++;
+        this.culprits[culprit]++;
+        this.lastCulprit = culprit;
+        
+        if (this.tripReported == false)
+        {
+            this.tripReported = true;
+            this.robot.feedback("Overrun: " + cycleTime + "us cycle, "
+                    + NAMES[culprit] + " " + this.cycleTimes[culprit] + "us");
+        }
+    }
+    
+    /**
+     * Returns the shortest recent time for a section.
+     * @param section the section
+     * @return the time (us), or 0 if it hasn't run
+     */
+    public int getMin(int section)
+    {
+        int min = (this.filled[section] == 0) ? 0 : Integer.MAX_VALUE;
+        
+        for (int i = 0; i < this.filled[section]; i++)
+        {
+            min = Math.min(min, this.times[section][i]);
+        }
+        
+        return min;
+    }
+    
+    /**
+     * Returns the average recent time for a section.
+     * @param section the section
+     * @return the time (us), or 0 if it hasn't run
+     */
+    public int getMean(int section)
+    {
+        long total = 0;
+        
+        for (int i = 0; i < this.filled[section]; i++)
+        {
+            total += this.times[section][i];
+        }
+        
+        return (this.filled[section] == 0) ? 0 : (int) (total / this.filled[section]);
+    }
+    
+    /**
+     * Returns the longest recent time for a section.
+     * @param section the section
+     * @return the time (us), or 0 if it hasn't run
+     */
+    public int getMax(int section)
+    {
+        int max = 0;
+        
+        for (int i = 0; i < this.filled[section]; i++)
+        {
+            max = Math.max(max, this.times[section][i]);
+        }
+        
+        return max;
+    }
+    
+    /**
+     * Returns a percentile of the recent times for a section. This sorts a
+     * copy of them, so it is meant for the summary, not every loop.
+     * @param section the section
+     * @param percent the percentile, e.g. 95
+     * @return the time (us), or 0 if it hasn't run
+     */
+    public int getPercentile(int section, int percent)
+    {
+        int count = this.filled[section];
+        
+        if (count == 0)
+        {
+            return 0;
+        }
+        
+        // Insertion sort - there are only WINDOW of them.
+        for (int i = 0; i < count; i++)
+        {
+            int value = this.times[section][i];
+            int j = i - 1;
+            
+            while (j >= 0 && this.scratch[j] > value)
+            {
+                this.scratch[j + 1] = this.scratch[j];
+                j--;
+            }
+            
+            this.scratch[j + 1] = value;
+        }
+        
+        return this.scratch[(count - 1) * percent / 100];
+    }
+    
+    /**
+     * Returns the recent times of every section that has run, as
+     * "name mean/p95/max" in microseconds, and the watchdog trips. This also
+     * lets the next trip be reported.
+     * @return the summary
+     */
+    public String getSummary()
+    {
+        StringBuffer summary = new StringBuffer("Timing us (mean/p95/max):");
+        
+        for (int s = 0; s < SECTIONS; s++)
+        {
+            if (this.filled[s] > 0)
+            {
+                summary.append(' ').append(NAMES[s]).append(' ')
+                        .append(this.getMean(s)).append('/')
+                        .append(this.getPercentile(s, 95)).append('/')
+                        .append(this.getMax(s));
+            }
+        }
+        
+        summary.append(", ").append(this.trips).append(" overruns");
+        
+        if (this.lastCulprit >= 0)
+        {
+            summary.append(" (last ").append(NAMES[this.lastCulprit]).append(')');
+        }
+        
+        this.tripReported = false;
+        
+        return summary.toString();
+    }
+    
+    /**
+     * Returns the section with the longest 95th percentile, and that time,
+     * short enough for the LCD, e.g. "p95 drive 812us".
+     * @return the slowest section
+     */
+    public String getSlowest()
+    {
+        int slowest = -1;
+        int slowestTime = 0;
+        
+        for (int s = 0; s < SECTIONS; s++)
+        {
+            int time = this.getPercentile(s, 95);
+            
+            if (this.filled[s] > 0 && (slowest < 0 || time > slowestTime))
+            {
+                slowest = s;
+                slowestTime = time;
+            }
+        }
+        
+        return (slowest < 0) ? "p95 -" : "p95 " + NAMES[slowest] + " " + slowestTime + "us";
+    }
+    
+    /**
+     * Returns the number of overruns, and the section blamed for the last, 
+     * short enough for the LCD, e.g. "Overruns 3 (drive)".
+     * @return the overruns
+     */
+    public String getOverruns()
+    {
+        return (this.lastCulprit < 0) ? "Overruns 0" 
+                : "Overruns " + this.trips + " (" + NAMES[this.lastCulprit] + ")";
+    }
+    
+    /**
+     * Reports the timing - the summary on the console, and the slowest 
+     * section and the overruns on the bottom two lines of the LCD.
+     */
+    public void report()
+    {
+        FeedbackLogger logger = this.robot.getLogger();
+        
+        logger.setStatus(DISPLAY_LINE, this.getSlowest());
+        logger.setStatus(DISPLAY_LINE + 1, this.getOverruns());
+        logger.log(this.getSummary(), false);
+    }
+    
+    /**
+     * Returns the name of a section.
+     * @param section the section
+     * @return the name
+     */
+    public static String getName(int section)
+    {
+        return NAMES[section];
+    }
+    
+    // Accessors
+    public int getTrips() { return this.trips; }
+    public int getTrips(int section) { return this.culprits[section]; }
+    public int getLastCulprit() { return this.lastCulprit; }
+}
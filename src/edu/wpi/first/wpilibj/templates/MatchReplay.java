@@ -0,0 +1,352 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * MatchReplay plays a black box recording back through the robot logic, on 
+ * simulated hardware, and checks that the robot does the same thing it did 
+ * at the time. For each record, the simulated clock is set to when the tick
+ * started, the joysticks, reed switches and drive encoders are set to what 
+ * was recorded, and the tick is run. The drive, roller and solenoid outputs 
+ * are then compared with the recording.
+ * 
+ * The robot is set up with the configuration file recorded at the start, 
+ * and each configuration recorded after that is reloaded at the same point
+ * it was on the robot, so tuned settings replay the same as the defaults.
+ * 
+ * There is no waiting between ticks, so a whole match replays in a fraction
+ * of a second. Any change to BallAcquisitionSystem, Catapult, Input or Robot
+ * that changes what the robot does with the same inputs shows up as a 
+ * mismatch, which makes a library of recorded matches into regression tests.
+ * ReplayMatches (in the desktop folder) replays a folder of them on a 
+ * computer.
+ * 
+ * The recording only has inputs as the robot saw them at the start of each
+ * tick, so anything in the logic that reads the clock part way through a 
+ * tick will see the start time rather than the real time.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class MatchReplay 
+{
+    // Power is recorded scaled by 32767. Joystick values lose a little when
+    // they are recorded, so allow the power to be a few steps out.
+    private static final int POWER_TOLERANCE = 4;
+    
+    private SimulatedHardware hardware; // The pretend electronics
+    private Robot robot;                // The robot logic being checked
+    
+    // Results
+    private int records = 0;            // Records replayed
+    private int mismatches = 0;         // Records where the outputs differed
+    private int gaps = 0;               // Places where records were dropped
+    private int firstMismatch = -1;     // Sequence number of the first one
+    private String firstMismatchDetail = "";
+    
+    /**
+     * Constructor - sets up the simulated hardware. There are no pistons - 
+     * the reed switches are set from the recording instead. The robot itself
+     * is set up once the recording says what configuration it used.
+     */
+    public MatchReplay()
+    {
+        this.hardware = new SimulatedHardware();
+    }
+    
+    /**
+     * Replays a recording.
+     * @param in the black box file
+     * @return the number of mismatches
+     * @throws IOException if the file is damaged or can't be read
+     */
+    public int replay(InputStream in) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        
+        if (data.readInt() != TelemetryRecorder.MAGIC 
+                || data.readInt() != TelemetryRecorder.RECORD_SIZE)
+        {
+            throw new IOException("Not a telemetry file");
+        }
+        
+        // The recorded values for one tick. Set up once and reused.
+        double[] axes = new double[Input.JOYSTICKS * TelemetryRecorder.AXES];
+        int[] buttons = new int[Input.JOYSTICKS];
+        int[] power = new int[3];
+        
+        int mode = 0;
+        int lastSequence = -1;
+        
+        // Each record is read whole, and then split into its fields.
+        byte[] record = new byte[TelemetryRecorder.RECORD_SIZE];
+        ByteArrayInputStream recordStream = new ByteArrayInputStream(record);
+        DataInputStream fields = new DataInputStream(recordStream);
+        
+        while (TelemetryDecoder.readRecord(data, record))
+        {
+            // Read the record.
+            recordStream.reset();
+            long time = fields.readLong();
+            
+            if (time == TelemetryRecorder.CONFIGURATION)
+            {
+                byte[] text = TelemetryDecoder.readConfiguration(data, fields);
+                
+                if (text == null)
+                {
+                    break;
+                }
+                
+                this.useConfiguration(text);
+                continue;
+            }
+            
+            if (this.robot == null)
+            {
+                throw new IOException("No configuration before the first record");
+            }
+            
+            int sequence = fields.readInt();
+            
+            for (int i = 0; i < axes.length; i++)
+            {
+                axes[i] = fields.readShort() / 32767.0;
+            }
+            
+            for (int j = 0; j < Input.JOYSTICKS; j++)
+            {
+                buttons[j] = fields.readShort() & 0xFFFF;
+            }
+            
+            int sensorState = fields.readInt();
+            int leftCount = fields.readInt();
+            int rightCount = fields.readInt();
+            
+            for (int i = 0; i < power.length; i++)
+            {
+                power[i] = fields.readShort();
+            }
+            
+            int solenoids = fields.readByte() & 0x7;
+            int recordMode = (fields.readByte() >> 4) & 0xF;
+            
+            // Piston timings. These are measurements, not outputs, so they 
+            // aren't checked.
+            fields.readShort();
+            fields.readShort();
+            
+            if (lastSequence >= 0 && sequence != lastSequence + 1)
+            {
+                this.gaps++;
+            }
+            lastSequence = sequence;
+            
+            // Move to the right mode.
+            if (recordMode != mode)
+            {
+                this.endMode(mode);
+                mode = recordMode;
+                
+                if (mode == TelemetryRecorder.AUTONOMOUS) this.robot.startAutonomous();
+                else this.robot.startTeleop();
+            }
+            
+            // Set the inputs. Joysticks are numbered from 1 on the hardware.
+            if (time > this.hardware.getTime())
+            {
+                this.hardware.advance(time - this.hardware.getTime());
+            }
+            
+            for (int j = 0; j < Input.JOYSTICKS; j++)
+            {
+                SimulatedHardware.SimulatedJoystick joystick = this.hardware.getJoystick(j + 1);
+                joystick.setButtons(buttons[j]);
+                
+                for (int a = 1; a <= TelemetryRecorder.AXES; a++)
+                {
+                    joystick.setRawAxis(a, axes[j * TelemetryRecorder.AXES + (a - 1)]);
+                }
+            }
+            
+            SensorSnapshot sensors = this.robot.getSensors();
+            
+            for (int i = 0; i < sensors.getSensorCount(); i++)
+            {
+                OutputStage.CountedSensor sensor = (OutputStage.CountedSensor) sensors.getSensor(i);
+                ((SimulatedHardware.SimulatedDigitalInput) sensor.getSensor())
+                        .setValue((sensorState & (1 << i)) != 0);
+            }
+            
+            // The encoders count whatever the drive did, so the distance and
+            // profile drives see the same distances they did at the time.
+            Configuration configuration = this.robot.getConfiguration();
+            this.hardware.getEncoder(configuration.getLeftEncoderA()).setCount(leftCount);
+            this.hardware.getEncoder(configuration.getRightEncoderA()).setCount(rightCount);
+            
+            // Run the tick.
+            if (mode == TelemetryRecorder.AUTONOMOUS) this.robot.autonomousTick();
+            else this.robot.teleopTick();
+            
+            // Check the outputs.
+            this.check(sequence, "left drive", power[0], this.robot.getDriveBase().getLeftOutput());
+            this.check(sequence, "right drive", power[1], this.robot.getDriveBase().getRightOutput());
+            this.check(sequence, "roller", power[2], this.robot.getBAS().getRollerSpeed());
+            
+            int replayed = (this.robot.getBAS().isLowerSolenoidOn() ? 1 : 0)
+                    | (this.robot.getBAS().isRaiseSolenoidOn() ? 2 : 0)
+                    | (this.robot.getCatapult().isFiring() ? 4 : 0);
+            
+            if (replayed != solenoids)
+            {
+                this.mismatch(sequence, "solenoids " + solenoids + " != " + replayed);
+            }
+            
+            // Throw away the feedback.
+            this.robot.getLogger().drain();
+            
+            this.records++;
+        }
+        
+        this.endMode(mode);
+        
+        return this.mismatches;
+    }
+    
+    /**
+     * Puts a recorded configuration file on the simulated hardware. The 
+     * first one sets up the robot. Later ones are reloaded, the same as on 
+     * the robot, so they are swapped in at the start of the next tick.
+     * @param text the configuration file
+     * @throws IOException if it can't be written
+     */
+    private void useConfiguration(byte[] text) throws IOException
+    {
+        OutputStream file = this.hardware.openOutputFile(Robot.CONFIGURATION_FILE);
+        file.write(text);
+        file.close();
+        
+        if (this.robot == null)
+        {
+            this.robot = new Robot(this.hardware);
+            this.robot.setProvideFeedback(false);
+        }
+        else
+        {
+            this.robot.reloadConfiguration();
+        }
+    }
+    
+    /**
+     * Ends the current mode, if there is one.
+     * @param mode the mode to end
+     */
+    private void endMode(int mode)
+    {
+        if (mode == TelemetryRecorder.AUTONOMOUS) this.robot.endAutonomous();
+        else if (mode == TelemetryRecorder.TELEOP) this.robot.endTeleop();
+    }
+    
+    /**
+     * Compares a recorded power with the replayed one.
+     */
+    private void check(int sequence, String name, int recorded, double replayed)
+    {
+        int scaled = (int) (Math.max(-1.0, Math.min(1.0, replayed)) * 32767);
+        
+        if (Math.abs(scaled - recorded) > POWER_TOLERANCE)
+        {
+            this.mismatch(sequence, name + " " + (recorded / 32767.0) + " != " + replayed);
+        }
+    }
+    
+    /**
+     * Counts a mismatch, and remembers the first one.
+     */
+    private void mismatch(int sequence, String detail)
+    {
+        if (this.mismatches == 0)
+        {
+            this.firstMismatch = sequence;
+            this.firstMismatchDetail = detail;
+        }
+        
+        this.mismatches++;
+    }
+    
+    /**
+     * Returns a short summary of the results.
+     * @return the results
+     */
+    public String getSummary()
+    {
+        String summary = this.records + " records, " + this.gaps + " gaps, " 
+                + this.mismatches + " mismatches";
+        
+        if (this.mismatches > 0)
+        {
+            summary += " (first at " + this.firstMismatch + ": " + this.firstMismatchDetail + ")";
+        }
+        
+        return summary;
+    }
+    
+    // Accessors
+    public int getRecords() { return this.records; }
+    public int getMismatches() { return this.mismatches; }
+    public int getGaps() { return this.gaps; }
+    
+    /**
+     * Plays a simulated match and replays it, which checks that the robot 
+     * logic gives the same results every time. Recorded matches are replayed
+     * with ReplayMatches, in the desktop folder.
+     * @param args not used
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int failed = replaySimulatedMatch();
+        
+        System.out.println(failed == 0 ? "All replays match" : failed + " replays failed");
+    }
+    
+    /**
+     * Plays a simulated match, replays it and prints the results.
+     * @return 1 if it failed, 0 if it matched
+     */
+    public static int replaySimulatedMatch() throws IOException
+    {
+        Simulator simulator = new Simulator();
+        simulator.runAutonomous(Simulator.AUTONOMOUS_TIME);
+        simulator.runTeleop(Simulator.TELEOP_TIME);
+        
+        byte[] recording = simulator.getHardware().getFileContents(Simulator.TELEMETRY_FILE);
+        return replay("simulated match", new ByteArrayInputStream(recording));
+    }
+    
+    /**
+     * Replays one recording and prints the results.
+     * @param name what to call it in the results
+     * @param in the black box file
+     * @return 1 if it failed, 0 if it matched
+     * @throws IOException if the file is damaged or can't be read
+     */
+    public static int replay(String name, InputStream in) throws IOException
+    {
+        MatchReplay replay = new MatchReplay();
+        
+        long startTime = System.currentTimeMillis();
+        replay.replay(in);
+        long elapsed = System.currentTimeMillis() - startTime;
+        
+        System.out.println(name + ": " + replay.getSummary() + " in " + elapsed + "ms");
+        
+        return (replay.getMismatches() == 0) ? 0 : 1;
+    }
+}
@@ -0,0 +1,186 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * A motion profile - where the robot should be, and how fast it should be
+ * going, at each control loop of a drive. Rather than jumping straight to a
+ * set power, the robot speeds up and slows down smoothly, so the wheels don't
+ * slip and it doesn't tip.
+ * 
+ * The profile is trapezoidal: speed up at the maximum acceleration, cruise at
+ * the maximum velocity, then slow down again. (Short drives never get to the
+ * maximum velocity, so they just speed up and slow down.) If a jerk time is
+ * given, the corners are rounded off to make an S-curve, by averaging the
+ * velocity over that much time.
+ * 
+ * All the maths is done by generate(), which should be called before the
+ * match (when the robot starts, or while it is disabled). The results are
+ * kept in arrays with one entry per loop, so following the profile is just
+ * looking up the entry for the current time.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class MotionProfile
+{
+    private double[] position;          // Metres from the start
+    private double[] velocity;          // Metres per second
+    private double[] scratch;           // Used while generating
+    private int length = 0;             // Entries in use
+    private long period = 0;            // Time between entries (us)
+    
+    /**
+     * Constructor. Creates the arrays - nothing is created after this.
+     * @param capacity the most entries a profile can have (e.g. 500 for 10
+     * seconds at 50 loops a second)
+     */
+    public MotionProfile(int capacity)
+    {
+        this.position = new double[capacity];
+        this.velocity = new double[capacity];
+        this.scratch = new double[capacity];
+    }
+    
+    /**
+     * Works out a profile. Negative distances drive in reverse.
+     * @param distance how far to go, in metres
+     * @param maxVelocity the fastest to go, in metres per second
+     * @param maxAcceleration the fastest to speed up or slow down, in metres
+     * per second per second
+     * @param jerkTime how long to spend rounding off each corner, in seconds,
+     * or 0 for a plain trapezoid
+     * @param period the time between entries (the loop period), in
+     * microseconds
+     * @return true if it worked, false if the profile doesn't fit or the
+     * numbers make no sense
+     */
+    public boolean generate(double distance, double maxVelocity, double maxAcceleration,
+            double jerkTime, long period)
+    {
+        this.length = 0;
+        this.period = period;
+        
+        if (distance == 0 || maxVelocity <= 0 || maxAcceleration <= 0 || period <= 0)
+        {
+            return false;
+        }
+        
+        double dt = period / 1000000.0;
+        double sign = (distance < 0) ? -1.0 : 1.0;
+        distance = Math.abs(distance);
+        
+        // Time to get up to speed, and how far that takes. If there isn't
+        // room to get to full speed and back down again, the top of the
+        // trapezoid is cut off, and it becomes a triangle.
+        double peakVelocity = maxVelocity;
+        double accelerationTime = peakVelocity / maxAcceleration;
+        double accelerationDistance = 0.5 * maxAcceleration * accelerationTime * accelerationTime;
+        
+        if (2 * accelerationDistance > distance)
+        {
+            peakVelocity = Math.sqrt(distance * maxAcceleration);
+            accelerationTime = peakVelocity / maxAcceleration;
+            accelerationDistance = distance / 2;
+        }
+        
+        double cruiseTime = (distance - 2 * accelerationDistance) / peakVelocity;
+        double totalTime = 2 * accelerationTime + cruiseTime;
+        
+        // Entries for the trapezoid, and extra entries for the averaging.
+        int window = Math.max(1, (int) (jerkTime / dt + 0.5));
+        int points = (int) Math.ceil(totalTime / dt) + 1;
+        
+        if (points + window - 1 > this.position.length)
+        {
+            return false;
+        }
+        
+        // The trapezoid.
+        for (int i = 0; i < points; i++)
+        {
+            double t = i * dt;
+            
+            if (t < accelerationTime)
+            {
+                this.scratch[i] = maxAcceleration * t;
+            }
+            else if (t < accelerationTime + cruiseTime)
+            {
+                this.scratch[i] = peakVelocity;
+            }
+            else
+            {
+                this.scratch[i] = Math.max(0.0, maxAcceleration * (totalTime - t));
+            }
+        }
+        
+        // Round the corners, by averaging the last "window" entries. With a
+        // window of 1 this just copies the trapezoid.
+        this.length = points + window - 1;
+        double sum = 0.0;
+        
+        for (int i = 0; i < this.length; i++)
+        {
+            sum += (i < points) ? this.scratch[i] : 0.0;
+            sum -= (i >= window) ? this.scratch[i - window] : 0.0;
+            this.velocity[i] = sum / window;
+        }
+        
+        // Add up the velocities to get the positions.
+        this.position[0] = 0.0;
+        
+        for (int i = 1; i < this.length; i++)
+        {
+            this.position[i] = this.position[i - 1]
+                    + (this.velocity[i - 1] + this.velocity[i]) / 2 * dt;
+        }
+        
+        // The steps aren't quite exact, so stretch it to finish in exactly
+        // the right place.
+        double scale = (this.position[this.length - 1] > 0)
+                ? sign * distance / this.position[this.length - 1] : 0.0;
+        
+        for (int i = 0; i < this.length; i++)
+        {
+            this.position[i] *= scale;
+            this.velocity[i] *= scale;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Returns the entry for a time since the start of the profile. After the
+     * end, this is the last entry.
+     * @param elapsed time since the start, in microseconds
+     * @return the entry
+     */
+    public int getIndex(long elapsed)
+    {
+        int index = (int) (elapsed / this.period);
+        
+        return Math.max(0, Math.min(this.length - 1, index));
+    }
+    
+    /**
+     * Returns how long the profile takes.
+     * @return the time in microseconds
+     */
+    public long getDuration()
+    {
+        return (this.length - 1) * this.period;
+    }
+    
+    // Accessors
+    public double getPosition(int index) { return this.position[index]; }
+    public double getVelocity(int index) { return this.velocity[index]; }
+    public int getLength() { return this.length; }
+    public long getPeriod() { return this.period; }
+    public boolean isEmpty() { return this.length == 0; }
+}
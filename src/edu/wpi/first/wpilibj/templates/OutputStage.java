@@ -0,0 +1,299 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * OutputStage sits between the robot logic and the real hardware, and stops
+ * writes to the solenoids and motors that wouldn't change anything. Each 
+ * output remembers the last value it was sent, and only passes a write on if
+ * the value is different. Motors are also rewritten every so often even when
+ * nothing has changed, so that the motor safety doesn't think they have been
+ * forgotten about.
+ * 
+ * Everything else is passed straight through to the hardware underneath, so
+ * Robot can hand this to the subsystems as if it were the hardware itself.
+ * 
+ * It also counts writes passed on (issued) and writes skipped (suppressed), 
+ * both in total and over the last whole second. Reads of the sensors - the 
+ * digital inputs, the pressure switch and the encoders - are counted too, 
+ * wherever they are done from, so the sensor snapshot can show how many 
+ * there really are each tick.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class OutputStage implements Hardware
+{
+    private static final long ONE_SECOND = 1000000;
+    
+    private Hardware hardware;          // The hardware being written to
+    private long motorRefreshTime;      // Rewrite motors this often (us)
+    
+    // Statistics
+    private long writesIssued = 0;      // Writes passed on to the hardware
+    private long writesSuppressed = 0;  // Writes that weren't needed
+    private long windowStart = 0;       // Start of the current second
+    private long windowIssued = 0;      // Writes issued this second
+    private long windowSuppressed = 0;  // Writes suppressed this second
+    private long issuedPerSecond = 0;   // Writes issued in the last second
+    private long suppressedPerSecond = 0;// Writes suppressed in the last second
+    private int reads = 0;              // Sensor reads since takeReads()
+    
+    /**
+     * A solenoid that only passes on changes.
+     */
+    private class CachedSolenoid implements SolenoidOutput
+    {
+        private SolenoidOutput solenoid;
+        private boolean on = false;
+        private boolean written = false;    // Nothing has been sent yet
+        
+        public void set(boolean on)
+        {
+            boolean issue = (this.written == false || on != this.on);
+            
+            if (issue)
+            {
+                this.solenoid.set(on);
+                this.on = on;
+                this.written = true;
+            }
+            
+            count(issue, hardware.getTime());
+        }
+        
+        public boolean get() { return this.on; }
+    }
+    
+    /**
+     * A motor that only passes on changes, or when it is due a refresh.
+     */
+    private class CachedMotor implements MotorOutput
+    {
+        private MotorOutput motor;
+        private double speed = 0.0;
+        private boolean written = false;    // Nothing has been sent yet
+        private long lastWrite = 0;         // When it was last sent
+        
+        public void set(double speed)
+        {
+            long now = hardware.getTime();
+            boolean issue = (this.written == false || speed != this.speed 
+                    || now - this.lastWrite >= motorRefreshTime);
+            
+            if (issue)
+            {
+                this.motor.set(speed);
+                this.speed = speed;
+                this.written = true;
+                this.lastWrite = now;
+            }
+            
+            count(issue, now);
+        }
+        
+        public double get() { return this.speed; }
+    }
+    
+    /**
+     * A digital input that counts its reads. Public so that the replay can
+     * get at the simulated input underneath.
+     */
+    public class CountedSensor implements DigitalSensor
+    {
+        private DigitalSensor sensor;
+        
+        public boolean get()
+        {
+            reads++;
+            return this.sensor.get();
+        }
+        
+        public DigitalSensor getSensor() { return this.sensor; }
+    }
+    
+    /**
+     * An encoder that counts its reads.
+     */
+    private class CountedEncoder implements EncoderInput
+    {
+        private EncoderInput encoder;
+        
+        public int get()
+        {
+            reads++;
+            return this.encoder.get();
+        }
+        
+        public void reset() { this.encoder.reset(); }
+    }
+    
+    /**
+     * The compressor, with its pressure switch counted.
+     */
+    private class CountedCompressor implements CompressorOutput
+    {
+        private CompressorOutput compressor;
+        private CountedSensor pressureSwitch;
+        
+        public void start() { this.compressor.start(); }
+        public void stop() { this.compressor.stop(); }
+        public boolean enabled() { return this.compressor.enabled(); }
+        public DigitalSensor getPressureSwitch() { return this.pressureSwitch; }
+    }
+    
+    /**
+     * Constructor.
+     * @param hardware the hardware to pass writes on to
+     * @param motorRefreshTime how often to rewrite a motor that hasn't 
+     * changed, in milliseconds. This needs to be well under the motor safety
+     * expiration.
+     */
+    public OutputStage(Hardware hardware, int motorRefreshTime)
+    {
+        this.hardware = hardware;
+        this.motorRefreshTime = motorRefreshTime * 1000L;
+    }
+    
+    public SolenoidOutput createSolenoid(int channel)
+    {
+        CachedSolenoid solenoid = new CachedSolenoid();
+        solenoid.solenoid = this.hardware.createSolenoid(channel);
+        return solenoid;
+    }
+    
+    public MotorOutput createVictor(int channel)
+    {
+        return this.cache(this.hardware.createVictor(channel));
+    }
+    
+    public MotorOutput createTalon(int channel)
+    {
+        return this.cache(this.hardware.createTalon(channel));
+    }
+    
+    public DigitalSensor createDigitalInput(int channel)
+    {
+        return this.count(this.hardware.createDigitalInput(channel));
+    }
+    
+    public EncoderInput createEncoder(int aChannel, int bChannel, boolean reverse)
+    {
+        CountedEncoder encoder = new CountedEncoder();
+        encoder.encoder = this.hardware.createEncoder(aChannel, bChannel, reverse);
+        return encoder;
+    }
+    
+    public CompressorOutput createCompressor(int pressureSwitchChannel, int relayChannel) 
+    { 
+        CountedCompressor compressor = new CountedCompressor();
+        compressor.compressor = this.hardware.createCompressor(pressureSwitchChannel, relayChannel);
+        compressor.pressureSwitch = this.count(compressor.compressor.getPressureSwitch());
+        return compressor;
+    }
+    
+    // These are passed straight through.
+    
+    public JoystickInput createJoystick(int port) { return this.hardware.createJoystick(port); }
+    public ControlBoardInput getControlBoard() { return this.hardware.getControlBoard(); }
+    public long getTime() { return this.hardware.getTime(); }
+    public void display(String[] lines) { this.hardware.display(lines); }
+    
+    public OutputStream openOutputFile(String name) throws IOException 
+    { 
+        return this.hardware.openOutputFile(name); 
+    }
+    
+    public InputStream openInputFile(String name) throws IOException 
+    { 
+        return this.hardware.openInputFile(name); 
+    }
+    
+    /**
+     * Wraps up a digital input, so its reads are counted.
+     * @param sensor the input to wrap
+     * @return the wrapped input
+     */
+    private CountedSensor count(DigitalSensor sensor)
+    {
+        CountedSensor counted = new CountedSensor();
+        counted.sensor = sensor;
+        return counted;
+    }
+    
+    /**
+     * Wraps up a motor.
+     * @param motor the motor to wrap
+     * @return the wrapped motor
+     */
+    private MotorOutput cache(MotorOutput motor)
+    {
+        CachedMotor cached = new CachedMotor();
+        cached.motor = motor;
+        return cached;
+    }
+    
+    /**
+     * Counts a write, and rolls the per second counts over once a second has
+     * passed.
+     * @param issued true if the write was passed on
+     * @param now the current time
+     */
+    private void count(boolean issued, long now)
+    {
+        if (now - this.windowStart >= ONE_SECOND)
+        {
+            this.issuedPerSecond = this.windowIssued;
+            this.suppressedPerSecond = this.windowSuppressed;
+            this.windowIssued = 0;
+            this.windowSuppressed = 0;
+            this.windowStart = now;
+        }
+        
+        if (issued)
+        {
+            this.writesIssued++;
+            this.windowIssued++;
+        }
+        else
+        {
+            this.writesSuppressed++;
+            this.windowSuppressed++;
+        }
+    }
+    
+    /**
+     * Returns the number of sensor reads since this was last called, and 
+     * starts counting again.
+     * @return the number of reads
+     */
+    public int takeReads()
+    {
+        int reads = this.reads;
+        this.reads = 0;
+        return reads;
+    }
+    
+    /**
+     * Returns a short summary of the statistics, suitable for feedback().
+     * @return the write statistics
+     */
+    public String getSummary()
+    {
+        return "Writes/s: " + this.issuedPerSecond + " issued, " 
+                + this.suppressedPerSecond + " suppressed";
+    }
+    
+    // Accessors
+    public long getWritesIssued() { return this.writesIssued; }
+    public long getWritesSuppressed() { return this.writesSuppressed; }
+    public long getIssuedPerSecond() { return this.issuedPerSecond; }
+    public long getSuppressedPerSecond() { return this.suppressedPerSecond; }
+}
@@ -0,0 +1,175 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * A PID controller. Unlike the WPILib one, this doesn't run its own thread -
+ * calculate() is called from the control loop with the latest measurement,
+ * and hands back the output. It only uses doubles, so it doesn't create
+ * anything while the robot is running.
+ * 
+ * The output is P + I + D, where:
+ *   P = kP * error
+ *   I = the sum of kI * error * dt, clamped to +/- the integral limit, so it
+ *       can't wind up while the robot is stuck against something. It also
+ *       isn't added to while the output is at the maximum.
+ *   D = -kD * the rate the measurement is changing (using the measurement
+ *       rather than the error means changing the setpoint doesn't cause a
+ *       kick)
+ * The output is then limited to +/- the maximum output. 
+ * 
+ * There is no feed-forward term. The drive's setpoints are distances and 
+ * headings measured from wherever the robot was turned on, so a term based 
+ * on the setpoint would depend on that rather than on the move. Motion 
+ * profiles add their own, from the profile's speed.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class PIDController
+{
+    // Gains
+    private double kP;
+    private double kI;
+    private double kD;
+    
+    private double integralLimit;       // Largest the I term can get
+    private double maxOutput = 1.0;     // Largest the output can get
+    
+    private double setpoint = 0.0;      // Where we want to be
+    private double error = 0.0;         // How far away we were last time
+    private double integral = 0.0;      // The I term so far
+    private double lastMeasurement = 0.0;
+    private double rate = 0.0;          // How fast the measurement is changing
+    private boolean first = true;       // No last measurement yet
+    
+    /**
+     * Constructor.
+     * @param kP proportional gain
+     * @param kI integral gain
+     * @param kD derivative gain
+     * @param integralLimit the largest the I term can get
+     */
+    public PIDController(double kP, double kI, double kD, double integralLimit)
+    {
+        this.setGains(kP, kI, kD, integralLimit);
+    }
+    
+    /**
+     * Changes the gains, for example after the configuration is reloaded.
+     * The I term built up so far is kept.
+     * @param kP proportional gain
+     * @param kI integral gain
+     * @param kD derivative gain
+     * @param integralLimit the largest the I term can get
+     */
+    public void setGains(double kP, double kI, double kD, double integralLimit)
+    {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+        this.integralLimit = integralLimit;
+    }
+    
+    /**
+     * Sets where we want to be.
+     * @param setpoint the target
+     */
+    public void setSetpoint(double setpoint)
+    {
+        this.setpoint = setpoint;
+    }
+    
+    /**
+     * Sets the largest output, either way.
+     * @param maxOutput the limit, e.g. 0.5 for half power
+     */
+    public void setMaxOutput(double maxOutput)
+    {
+        this.maxOutput = maxOutput;
+    }
+    
+    /**
+     * Clears the I term and the last measurement. Call this when starting
+     * something new.
+     */
+    public void reset()
+    {
+        this.integral = 0.0;
+        this.error = 0.0;
+        this.rate = 0.0;
+        this.first = true;
+    }
+    
+    /**
+     * Works out the output for the latest measurement.
+     * @param measurement where we are now
+     * @param dt time since the last call, in seconds
+     * @return the output, between -maxOutput and maxOutput
+     */
+    public double calculate(double measurement, double dt)
+    {
+        this.error = this.setpoint - measurement;
+        
+        double output = this.kP * this.error;
+        
+        if (this.first == false && dt > 0.0)
+        {
+            this.rate = (measurement - this.lastMeasurement) / dt;
+            output -= this.kD * this.rate;
+            
+            // While P and D are already asking for more than the maximum, 
+            // the I term isn't needed, so it isn't built up. Otherwise it
+            // winds up on the way to the setpoint, and pushes past it.
+            if (Math.abs(output) < this.maxOutput || (output > 0) != (this.error > 0))
+            {
+                this.integral = this.clamp(this.integral + this.kI * this.error * dt,
+                        this.integralLimit);
+            }
+            
+            output += this.integral;
+        }
+        
+        this.lastMeasurement = measurement;
+        this.first = false;
+        
+        return this.clamp(output, this.maxOutput);
+    }
+    
+    /**
+     * Returns whether the last measurement was close enough to the setpoint,
+     * and had settled there. Being close isn't enough on its own - going 
+     * past the setpoint at full speed, it would be close for one loop.
+     * @param tolerance how close is close enough
+     * @param rateTolerance how slowly the measurement has to be changing 
+     * (per second)
+     * @return true if it was within both tolerances
+     */
+    public boolean onTarget(double tolerance, double rateTolerance)
+    {
+        return this.first == false && Math.abs(this.error) <= tolerance
+                && Math.abs(this.rate) <= rateTolerance;
+    }
+    
+    /**
+     * Keeps a value between -limit and limit.
+     * @param value the value
+     * @param limit the limit
+     * @return the limited value
+     */
+    private double clamp(double value, double limit)
+    {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+    
+    // Accessors
+    public double getSetpoint() { return this.setpoint; }
+    public double getError() { return this.error; }
+    public double getRate() { return this.rate; }
+    public double getIntegral() { return this.integral; }
+}
@@ -0,0 +1,830 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * Robot holds the major parts of the robot and the logic that ties them 
+ * together. It is kept apart from RobotMain so that it only depends on the
+ * Hardware it is given - on the robot that is WPILibHardware, but it can just
+ * as easily be run against SimulatedHardware on a computer.
+ * 
+ * Each mode has a start method, a tick method that is called once per control
+ * loop, and an end method. RobotMain calls these from the matching 
+ * SimpleRobot mode.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class Robot 
+{
+    // Configuration file, in the root of the cRIO's flash.
+    public static final String CONFIGURATION_FILE = "robot.cfg";
+    
+    // Main classes - these handled the major parts of the robot
+    
+    private Hardware hardware;          // The electronics (through the outputs).
+    private OutputStage outputs;        // Skips writes that change nothing.
+    private SensorSnapshot sensors;     // Reads the sensors once per loop.
+    private Input input;                // Manages the controls.
+    private Catapult catapult;          // Shoots the ball. Yay!
+    private BallAcquisitionSystem bas;  // Picks up the ball.
+    private DriveBase driveBase;        // Drives the robot. This is important. :)
+    private AirSupply airSupply;        // The compressor, and the air left
+    
+    private Configuration configuration;// Tracks the various parts of the robot.
+    
+    // A reloaded configuration, waiting to be swapped in at the start of the
+    // next tick. Nearly always null.
+    private volatile Configuration pendingConfiguration;
+    
+    private FeedbackLogger logger;      // Prints feedback in the background.
+    private TelemetryRecorder recorder; // The black box.
+    private LoopProfiler profiler;      // Times each part of the loop.
+    
+    private long tickTime = 0;          // When the current tick started
+    
+    private AutonomousSequencer autonomous; // The autonomous steps
+    
+    // The autonomous drive's motion profile, worked out before the match. A
+    // reload works out a new one in the spare, and it is swapped in along 
+    // with the new configuration.
+    private MotionProfile autoProfile;
+    private MotionProfile spareProfile;
+    
+    // The same for the drivers' joystick curves. Input has the ones in use.
+    private InputCurve[] spareCurves = new InputCurve[Configuration.DRIVERS];
+    
+    private ShotCycle shotCycle;        // Pick up and shoot from one button
+    
+    // Teleop is run as commands. There is one for each Input action (in the
+    // same order), plus the shot cycle.
+    private CommandScheduler scheduler; // Decides which commands run
+    private Command[] actionCommands;   // The command for each action
+    private Command shotCycleCommand;   // Runs the shot cycle
+    
+    // Feedback for each of the Input actions, in the same order.
+    private static final String[] ACTION_MESSAGES = 
+    {
+        "Lowering the BAS",
+        "Raising the BAS",
+        "Shooting the ball",
+        "Lowering the catapult",
+        "Dropping the ball",
+        "Retrieving the ball"
+    };
+    
+    /**
+     * Constructor - sets up each part of the robot using the hardware given.
+     * @param hardware the hardware to use
+     */
+    public Robot(Hardware hardware)
+    {
+        this.hardware = hardware;
+        
+        // Stores all of the configuration details, such as what ports to use.
+        // These come from the configuration file, if there is one.
+        Configuration loaded = this.readConfiguration();
+        this.configuration = (loaded != null) ? loaded : new Configuration();
+        
+        // Feedback is queued up and printed later, so the control loop never
+        // waits for the console or LCD. Console feedback is normally left on.
+        this.logger = new FeedbackLogger(hardware, 
+                this.configuration.getFeedbackCapacity(), 
+                this.configuration.getFeedbackDisplayPeriod());
+        
+        // Feedback to confirm that the robot has started initialising
+        this.feedback("Robot initialising");
+        this.reportConfiguration(loaded);
+        
+        // Everything from here on gets its solenoids and motors through the 
+        // output stage, so writes that don't change anything are skipped.
+        this.outputs = new OutputStage(hardware, this.configuration.getMotorRefreshTime());
+        this.hardware = this.outputs;
+        
+        // Times each part of the control loop, and watches for overruns.
+        this.profiler = new LoopProfiler(this);
+        
+        // The subsystems add their sensors to this as they are set up.
+        this.sensors = new SensorSnapshot(this);
+        
+        // Creates the compressor, and starts keeping track of the air.
+        this.airSupply = new AirSupply(this);
+        
+        // Set up the BAS
+        this.bas = new BallAcquisitionSystem(this);
+        
+        // Ready the catapult, squire.
+        this.catapult = new Catapult(this);
+        
+        // Instantiate the input - this covers the joysticks and control board.
+        this.input = new Input(this);
+        
+        // The motors and wheels and stuff.
+        this.driveBase = new DriveBase(this);
+        
+        // Records what happens every loop. Nothing is recorded until it has 
+        // been given a file to write to.
+        this.recorder = new TelemetryRecorder(this, 
+                this.configuration.getTelemetryCapacity(),
+                this.configuration.getTelemetryBlock());
+        
+        // Autonomous is a list of steps, set up when autonomous starts.
+        this.autonomous = new AutonomousSequencer(this, 8);
+        
+        // Enough for 20 seconds at 50 loops a second.
+        this.autoProfile = new MotionProfile(1000);
+        this.spareProfile = new MotionProfile(1000);
+        this.generateProfile(this.configuration, this.autoProfile);
+        
+        for (int d = 0; d < Configuration.DRIVERS; d++)
+        {
+            this.spareCurves[d] = new InputCurve();
+        }
+        
+        // Holding the shoot button runs this in teleop.
+        this.shotCycle = new ShotCycle(this);
+        
+        // Set up the teleop commands. The action number doubles as the 
+        // priority, so lowering the BAS beats everything else, as before.
+        this.scheduler = new CommandScheduler(this, 16);
+        this.scheduler.setDefault(new Command.StopRoller());
+        
+        this.actionCommands = new Command[Input.ACTIONS];
+        this.actionCommands[Input.LOWER_BAS] = new Command.LowerBAS(Input.LOWER_BAS);
+        this.actionCommands[Input.RAISE_BAS] = new Command.RaiseBAS(Input.RAISE_BAS);
+        this.actionCommands[Input.SHOOT] = new Command.Shoot(Input.SHOOT);
+        this.actionCommands[Input.LOWER_CATAPULT] = new Command.LowerCatapult(Input.LOWER_CATAPULT);
+        this.actionCommands[Input.DROP_BALL] = new Command.DropBall(Input.DROP_BALL);
+        this.actionCommands[Input.RETRIEVE_BALL] = new Command.RetrieveBall(Input.RETRIEVE_BALL);
+        this.shotCycleCommand = new Command.RunShotCycle(Input.SHOOT);
+        
+        // Just in case there's something we need to generally do. Not currently
+        // used.
+        this.enable();
+        
+        // Feedback to confirm that the robot has finished initialising
+        this.feedback("Initialising done");
+    }
+    
+    /**
+     * Reads the configuration file.
+     * @return the configuration, or null if there is no file (or it can't be
+     * read)
+     */
+    private Configuration readConfiguration()
+    {
+        InputStream in = null;
+        
+        try
+        {
+            in = this.hardware.openInputFile(CONFIGURATION_FILE);
+            return new Configuration(in);
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException e)
+                {
+                }
+            }
+        }
+    }
+    
+    /**
+     * Lets the drivers know how reading the configuration file went.
+     * @param loaded what was read, or null if there was no file
+     */
+    private void reportConfiguration(Configuration loaded)
+    {
+        if (loaded == null)
+        {
+            this.feedback("No " + CONFIGURATION_FILE + " - using the defaults");
+        }
+        else if (loaded.getProblems().length() > 0)
+        {
+            this.feedback("Problems in " + CONFIGURATION_FILE + ":\n" + loaded.getProblems());
+        }
+        else
+        {
+            this.feedback("Read " + CONFIGURATION_FILE);
+        }
+    }
+    
+    /**
+     * Reads the configuration file again, so that tuning changes can be made
+     * without redeploying. The new configuration is swapped in as a whole at
+     * the start of the next tick, so a tick never sees half of one and half
+     * of the other. If the file can't be read, the current one is kept.
+     * 
+     * This is meant to be used between matches (RobotMain does it whenever 
+     * the robot is disabled).
+     */
+    public void reloadConfiguration()
+    {
+        Configuration loaded = this.readConfiguration();
+        this.reportConfiguration(loaded);
+        
+        if (loaded == null)
+        {
+            return;
+        }
+        
+        if (loaded.hasSameStartupSettings(this.configuration) == false)
+        {
+            this.feedback("Ports, loop period or buffer sizes changed - restart to use them");
+        }
+        
+        // Work out the autonomous profile and the joystick curves now, rather
+        // than during the match.
+        this.generateProfile(loaded, this.spareProfile);
+        Input.generateCurves(loaded, this.spareCurves);
+        
+        synchronized (this)
+        {
+            this.pendingConfiguration = loaded;
+        }
+    }
+    
+    /**
+     * Works out the autonomous motion profile from a configuration. If there
+     * is no autonomous distance (or no maximum velocity), the profile is left
+     * empty, and autonomous doesn't use it.
+     * @param configuration the configuration to use
+     * @param profile where to put the profile
+     */
+    private void generateProfile(Configuration configuration, MotionProfile profile)
+    {
+        if (configuration.getAutoDriveDistance() <= 0 || configuration.getAutoMaxVelocity() <= 0)
+        {
+            profile.generate(0, 0, 0, 0, 0);
+            return;
+        }
+        
+        if (profile.generate(configuration.getAutoDriveDistance(), 
+                configuration.getAutoMaxVelocity(),
+                configuration.getAutoMaxAcceleration(),
+                configuration.getAutoJerkTime(),
+                configuration.getLoopPeriod() * 1000L))
+        {
+            this.feedback("Auto profile: " + profile.getLength() + " steps, " 
+                    + (profile.getDuration() / 1000) + "ms");
+        }
+        else
+        {
+            this.feedback("Auto profile doesn't fit - using the distance PID");
+        }
+    }
+    
+    /**
+     * Swaps in a reloaded configuration, if there is one. This is called at
+     * the start of each tick, and costs one check when there isn't.
+     */
+    private void applyConfiguration()
+    {
+        if (this.pendingConfiguration != null)
+        {
+            int driver = this.configuration.getDriver();
+            
+            synchronized (this)
+            {
+                this.configuration = this.pendingConfiguration;
+                this.pendingConfiguration = null;
+                
+                MotionProfile profile = this.autoProfile;
+                this.autoProfile = this.spareProfile;
+                this.spareProfile = profile;
+                
+                this.spareCurves = this.input.setCurves(this.spareCurves);
+            }
+            
+            this.feedback("Configuration reloaded");
+            
+            // Only change driver if the file now names a different one, so a
+            // driver picked with setDriver() isn't lost on every reload.
+            if (this.configuration.getDriver() != driver)
+            {
+                this.input.setDriver(this.configuration.getDriver());
+            }
+        }
+    }
+    
+    /**
+     * Not currently used. Gets called at the start of each mode.
+     */
+    public void enable() 
+    {
+    }
+    
+    /**
+     * Start of autonomous mode - the robot is controlling itself.
+     */
+    public void startAutonomous()
+    {
+        // Just in case we need this later.
+        this.enable();
+        this.applyConfiguration();
+        
+        // Start the compressor.
+        this.airSupply.start();
+        
+        // Feedback to the console, letting the user know where we are.
+        this.feedback("Entering autonomous");
+        
+        // Drive forward (at half speed for 4 seconds, unless the 
+        // configuration has been changed), shoot the ball, and then wait for
+        // the catapult to come back in. If the BAS never says it is lowered,
+        // the shot gives up rather than waiting forever.
+        // 
+        // The BAS is lowered, and the catapult checked, while driving. That
+        // way the piston travel is out of the way by the time we stop, rather
+        // than being added on before the shot.
+        // 
+        // If a distance has been set, the encoders are used to drive it, 
+        // rather than driving for a set time. Normally this follows the 
+        // profile worked out before the match.
+        this.autonomous.clear();
+        
+        if (this.configuration.getAutoDriveDistance() > 0 && this.autoProfile.isEmpty() == false)
+        {
+            this.autonomous.add(new AutonomousStep.FollowProfile(this.autoProfile,
+                    this.configuration.getAutoDriveTimeout()));
+        }
+        else if (this.configuration.getAutoDriveDistance() > 0)
+        {
+            this.autonomous.add(new AutonomousStep.DriveDistance(
+                    this.configuration.getAutoDriveDistance(), 
+                    this.configuration.getAutoDriveSpeed(), 
+                    this.configuration.getAutoDriveTimeout()));
+        }
+        else
+        {
+            this.autonomous.add(new AutonomousStep.Drive(
+                    this.configuration.getAutoDriveSpeed(), 
+                    this.configuration.getAutoDriveTime(), 
+                    this.configuration.getAutoDriveTimeout()));
+        }
+        
+        this.autonomous.addParallel(new AutonomousStep.LowerBAS(
+                this.configuration.getAutoLowerBASTimeout()));
+        this.autonomous.addParallel(new AutonomousStep.CatapultReady(
+                this.configuration.getAutoRetractTimeout()).setFallback(
+                new AutonomousStep.Feedback("Auto: catapult isn't down - the shot will wait for it")));
+        this.autonomous.add(new AutonomousStep.Shoot(
+                this.configuration.getAutoShootTimeout()).setFallback(
+                new AutonomousStep.Feedback("Auto: couldn't shoot - is the BAS lowered?")));
+        this.autonomous.add(new AutonomousStep.Retract(
+                this.configuration.getAutoRetractTimeout()));
+        this.autonomous.start();
+    }
+    
+    /**
+     * One pass of autonomous. Moves the autonomous steps along.
+     */
+    public void autonomousTick()
+    {
+        // Read the sensors for this loop.
+        this.applyConfiguration();
+        this.tickTime = this.hardware.getTime();
+        this.profiler.begin(LoopProfiler.SENSORS);
+        this.sensors.sample();
+        this.bas.update();
+        this.profiler.end(LoopProfiler.SENSORS);
+        
+        // Drive, then shoot the ball. If it hasn't had the BAS lowered, it 
+        // won't shoot, so the shoot step keeps trying until it does (or it 
+        // times out). The BAS should start lowering automagically.
+        this.profiler.begin(LoopProfiler.AUTONOMOUS);
+        this.autonomous.update();
+        this.profiler.end(LoopProfiler.AUTONOMOUS);
+        
+        // Retract the catapult once it has fired.
+        this.profiler.begin(LoopProfiler.CATAPULT);
+        this.catapult.update();
+        this.profiler.end(LoopProfiler.CATAPULT);
+        
+        // Top up the air, unless the drive needs the current.
+        this.profiler.begin(LoopProfiler.AIR);
+        this.airSupply.update();
+        this.profiler.end(LoopProfiler.AIR);
+        
+        // Record what happened.
+        this.profiler.begin(LoopProfiler.TELEMETRY);
+        this.recorder.record(TelemetryRecorder.AUTONOMOUS);
+        this.profiler.end(LoopProfiler.TELEMETRY);
+    }
+    
+    /**
+     * Returns whether autonomous has done everything it needs to.
+     * @return true once every autonomous step has finished
+     */
+    public boolean isAutonomousFinished()
+    {
+        return this.autonomous.isFinished();
+    }
+    
+    /**
+     * End of autonomous mode.
+     */
+    public void endAutonomous()
+    {
+        // If autonomous was ended early, make sure we aren't still driving.
+        this.autonomous.cancel();
+        this.driveBase.cancelDrive();
+        
+        // How long did each step take, and how long until the ball was away?
+        this.feedback(this.autonomous.getSummary());
+        
+        if (this.catapult.getFireTime() >= this.autonomous.getSequenceStart())
+        {
+            this.feedback("Auto: ball released " 
+                    + (this.catapult.getFireTime() - this.autonomous.getSequenceStart()) / 1000 
+                    + "ms after start");
+        }
+        else
+        {
+            this.feedback("Auto: ball not released");
+        }
+        
+        // Things to do when ending autonomous mode
+        this.airSupply.stop();      // Stop the compressor
+        this.recorder.requestFlush();// Save the black box
+        
+        // Feedback to the console
+        this.feedback("Exited autonomous");
+    }
+    
+    /**
+     * Start of teleop - the operator is now in charge.
+     */
+    public void startTeleop()
+    {
+        this.enable();
+        this.applyConfiguration();
+        
+        // Inform the console that this is under operator control
+        this.feedback("Entering teleop");
+        
+        // Start the compressor.
+        this.airSupply.start();
+        
+        // Make sure nothing is left over from autonomous.
+        this.driveBase.cancelDrive();
+        this.input.reset();
+        this.scheduler.cancelAll();
+    }
+    
+    /**
+     * One pass of the teleop logic - drives, and then deals with the BAS and 
+     * catapult. The simulator runs this every loop period. On the robot, the
+     * two halves are run by the teleop control loop at their own rates.
+     */
+    public void teleopTick()
+    {
+        this.teleopDriveTick();
+        this.teleopMechanismTick();
+    }
+    
+    /**
+     * The fast half of teleop - reads the joysticks and drives. Driving is
+     * left alone if a command has taken the drive base.
+     */
+    public void teleopDriveTick()
+    {
+        this.applyConfiguration();
+        
+        this.profiler.begin(LoopProfiler.INPUT);
+        this.input.update();
+        this.profiler.end(LoopProfiler.INPUT);
+        
+        if ((this.scheduler.getClaimed() & Command.DRIVE) == 0)
+        {
+            this.profiler.begin(LoopProfiler.DRIVE);
+            this.driveBase.Drive();
+            this.profiler.end(LoopProfiler.DRIVE);
+        }
+    }
+    
+    /**
+     * The slower half of teleop - reads the sensors, acts on the drivers'
+     * buttons, runs the BAS and catapult commands and records what happened.
+     */
+    public void teleopMechanismTick()
+    {
+        // Read the sensors for this loop. The joysticks are read by the 
+        // drive tick, which runs more often.
+        this.applyConfiguration();
+        this.tickTime = this.hardware.getTime();
+        this.profiler.begin(LoopProfiler.SENSORS);
+        this.sensors.sample();
+        this.bas.update();
+        this.profiler.end(LoopProfiler.SENSORS);
+        
+        // Deal with anything the drivers have pressed, held or let go of 
+        // since the last loop. Pressing a control schedules its command, and
+        // letting go cancels it. Nothing happens here unless a control has 
+        // changed.
+        this.profiler.begin(LoopProfiler.COMMANDS);
+        int event = this.input.getEvents().next();
+        
+        while (event != InputEventQueue.NONE)
+        {
+            int type = Input.getEventType(event);
+            int action = Input.getEventAction(event);
+            
+            if (type == Input.PRESSED)
+            {
+                this.feedback(ACTION_MESSAGES[action]);
+                this.scheduler.schedule(this.actionCommands[action]);
+            }
+            else if (type == Input.RELEASED)
+            {
+                this.scheduler.cancel(this.actionCommands[action]);
+                
+                if (action == Input.SHOOT)
+                {
+                    this.scheduler.cancel(this.shotCycleCommand);
+                }
+            }
+            
+            // Holding the shoot button starts the shot cycle.
+            else if (type == Input.HELD && action == Input.SHOOT)
+            {
+                this.feedback("Starting the shot cycle");
+                this.scheduler.schedule(this.shotCycleCommand);
+            }
+            
+            event = this.input.getEvents().next();
+        }
+        
+        // Run whatever has been asked for. Commands for different parts of 
+        // the robot (e.g. raising the BAS and lowering the catapult) run 
+        // together. If two want the same part, the more important one wins - 
+        // the same order as the old if/else chain. Anything left alone runs 
+        // its default: the roller stops. (The drive base is left to the 
+        // drive tick.)
+        this.scheduler.run();
+        this.profiler.end(LoopProfiler.COMMANDS);
+        
+        // Retract the catapult once it has fired.
+        this.profiler.begin(LoopProfiler.CATAPULT);
+        this.catapult.update();
+        this.profiler.end(LoopProfiler.CATAPULT);
+        
+        // These should be left commented out They are for debugging,
+        // and let the console know the status of reed switches on the
+        // pistons.
+        //if (this.bas.isLowered()) this.feedback("BAS down");
+        //if (this.bas.isRaised()) this.feedback("BAS up");
+        //if (this.catapult.isLowered()) this.feedback("Catapult down");
+        
+        // Top up the air, unless the drive needs the current.
+        this.profiler.begin(LoopProfiler.AIR);
+        this.airSupply.update();
+        this.profiler.end(LoopProfiler.AIR);
+        
+        // Record what happened.
+        this.profiler.begin(LoopProfiler.TELEMETRY);
+        this.recorder.record(TelemetryRecorder.TELEOP);
+        this.profiler.end(LoopProfiler.TELEMETRY);
+    }
+    
+    /**
+     * End of teleop.
+     */
+    public void endTeleop()
+    {
+        // Things to do when ending teleop mode
+        this.scheduler.cancelAll();
+        
+        if (this.shotCycle.getShots() > 0)
+        {
+            this.feedback(this.shotCycle.getSummary());
+        }
+        
+        this.feedback(this.airSupply.getSummary());
+        
+        this.airSupply.stop();      // Stop the compressor
+        this.recorder.requestFlush();// Save the black box
+        
+        // Inform the console that this has exited operator control
+        this.feedback("Exited teleop");
+    }
+    
+    /**
+     * Lets the drivers know how long the pistons have been taking to move,
+     * each way. Used by test mode.
+     */
+    public void reportPistonTimes()
+    {
+        this.feedback(this.bas.getLowerTimes().getSummary());
+        this.feedback(this.bas.getRaiseTimes().getSummary());
+        this.feedback(this.catapult.getFireTimes().getSummary());
+        this.feedback(this.catapult.getRetractTimes().getSummary());
+    }
+    
+    // Accessors
+    
+    /**
+     * Returns the time the current (or last) tick started, when its inputs 
+     * were read.
+     * @return the time, in microseconds
+     */
+    public long getTickTime()
+    {
+        return this.tickTime;
+    }
+    
+    /**
+     * Returns a reference to the robot's hardware. Solenoids and motors made
+     * from this go through the output stage.
+     * @return Hardware
+     */
+    public Hardware getHardware()
+    {
+        return this.hardware;
+    }
+    
+    /**
+     * Returns a reference to the output stage, which keeps track of the 
+     * writes to the solenoids and motors.
+     * @return OutputStage
+     */
+    public OutputStage getOutputs()
+    {
+        return this.outputs;
+    }
+    
+    /**
+     * Returns a reference to the sensor snapshot. Its values are only updated
+     * at the start of each tick (or by calling sample()).
+     * @return SensorSnapshot
+     */
+    public SensorSnapshot getSensors()
+    {
+        return this.sensors;
+    }
+    
+    /**
+     * Returns a reference to the robot's input (manages joysticks, etc).
+     * @return Input
+     */
+    public Input getInput()
+    {
+        return this.input;
+    }
+    
+    /**
+     * Returns a reference to the robot's drive base.
+     * @return DriveBase
+     */
+    public DriveBase getDriveBase()
+    {
+        return this.driveBase;
+    }
+    
+    /**
+     * Returns a reference to the robot's catapult.
+     * @return Catapult
+     */
+    public Catapult getCatapult()
+    {
+        return this.catapult;
+    }
+    
+    /**
+     * Returns a reference to the autonomous steps.
+     * @return AutonomousSequencer
+     */
+    public AutonomousSequencer getAutonomous()
+    {
+        return this.autonomous;
+    }
+    
+    /**
+     * Returns a reference to the shot cycle.
+     * @return ShotCycle
+     */
+    public ShotCycle getShotCycle()
+    {
+        return this.shotCycle;
+    }
+    
+    /**
+     * Returns a reference to the teleop command scheduler.
+     * @return CommandScheduler
+     */
+    public CommandScheduler getScheduler()
+    {
+        return this.scheduler;
+    }
+    
+    /**
+     * Returns a reference to the robot's Ball Acquisition System (BAS).
+     * @return BallAcquisitionSystem
+     */
+    public BallAcquisitionSystem getBAS()
+    {
+        return this.bas;
+    }
+    
+    /**
+     * Returns a reference to the robot's air compressor.
+     * @return Compressor
+     */
+    public Hardware.CompressorOutput getCompressor()
+    {
+        return this.airSupply.getCompressor();
+    }
+    
+    /**
+     * Returns the air supply, which runs the compressor.
+     * @return AirSupply
+     */
+    public AirSupply getAirSupply()
+    {
+        return this.airSupply;
+    }
+    
+    /**
+     * Returns a reference to the configuration manager.
+     * @return Configuration
+     */
+    public Configuration getConfiguration()
+    {
+        return this.configuration;
+    }
+    
+    /**
+     * Returns a reference to the telemetry recorder (black box).
+     * @return TelemetryRecorder
+     */
+    public TelemetryRecorder getRecorder()
+    {
+        return this.recorder;
+    }
+    
+    /**
+     * Returns a reference to the feedback logger.
+     * @return FeedbackLogger
+     */
+    public FeedbackLogger getLogger()
+    {
+        return this.logger;
+    }
+    
+    /**
+     * Returns a reference to the loop profiler.
+     * @return LoopProfiler
+     */
+    public LoopProfiler getProfiler()
+    {
+        return this.profiler;
+    }
+    
+    /**
+     * Turns console feedback on or off. The simulator turns it off, as 
+     * otherwise it spends most of its time printing.
+     * @param provideFeedback true to send messages to the console
+     */
+    public void setProvideFeedback(boolean provideFeedback)
+    {
+        this.logger.setConsole(provideFeedback);
+    }
+    
+    /**
+     * Simple feedback class - sends a message to the Driver Station, and 
+     * if provideFeedback is on, to the console. The message is queued, and 
+     * sent by the feedback logger when it gets a chance.
+     * @param message the message to send
+     */
+    public void feedback(String message)
+    {
+        // The profiler isn't there for the first few messages.
+        if (this.profiler != null)
+        {
+            this.profiler.begin(LoopProfiler.FEEDBACK);
+            this.logger.log(message);
+            this.profiler.end(LoopProfiler.FEEDBACK);
+        }
+        else
+        {
+            this.logger.log(message);
+        }
+    }
+}
@@ -9,7 +9,7 @@ package edu.wpi.first.wpilibj.templates;
 
 //import edu.wpi.first.wpilibj.SimpleRobot;
 import edu.wpi.first.wpilibj.*;
-import edu.wpi.first.wpilibj.DriverStationEnhancedIO.*;
+import java.io.*;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -17,60 +17,95 @@ import edu.wpi.first.wpilibj.DriverStationEnhancedIO.*;
  * documentation. If you change the name of this class or the package after
  * creating this project, you must also update the manifest file in the resource
  * directory.
+ * 
+ * The robot logic itself lives in Robot. This class sets it up with the real
+ * hardware and runs it in each mode, with a control loop that runs each part
+ * at its own rate: in teleop, the drive every drive period (10ms) and the BAS
+ * and catapult every loop period (20ms). The black box is also flushed by 
+ * the loop, less often, and is put off if the loop is running late. The 
+ * feedback (console and LCD) is printed by its own low priority thread, so 
+ * the loop never waits for it.
  */
 public class RobotMain extends SimpleRobot
 {
-    // Main classes - these handled the major parts of the robot
+    // Black box file, in the root of the cRIO's flash.
+    private static final String TELEMETRY_FILE = "blackbox.bin";
     
-    private Input input;                // Manages the controls.
-    private Catapult catapult;          // Shoots the ball. Yay!
-    private BallAcquisitionSystem bas;  // Picks up the ball.
-    private DriveBase driveBase;       // Drives the robot. This is important. :)
-    private Compressor compressor;      // The air compressor.
+    private Robot robot;                // The robot itself.
     
-    private Configuration configuration;// Tracks the various parts of the robot.
-    
-    private boolean provideFeedback; // Switch to give console feedback.
+    private ControlLoop autonomousLoop; // Runs autonomous at a fixed rate.
+    private ControlLoop teleopLoop;     // Runs teleop at a fixed rate.
     
     public void robotInit() 
     {
-        // Normally left on. Sends messages to the console when debugging.
-        this.provideFeedback = true;
-        
-        // Feedback to confirm that the robot has started initialising
-        this.feedback("Robot initialising");
-        
-        // Stores all of the configuration details, such as what ports to use.
-        this.configuration = new Configuration();
+        // Everything else is set up by Robot, using the real hardware.
+        this.robot = new Robot(new WPILibHardware());
         
-        // Creates a reference to the compressor.
-        this.compressor = new Compressor(1,1);
+        // Start printing feedback in the background.
+        this.robot.getLogger().start();
         
-        // Set up the BAS
-        this.bas = new BallAcquisitionSystem(this);
+        // Start the black box. It is written to blackbox.bin on the cRIO.
+        this.robot.getRecorder().open(TELEMETRY_FILE);
+        this.robot.getRecorder().start();
         
-        // Ready the catapult, squire.
-        this.catapult = new Catapult(this);
+        Configuration configuration = this.robot.getConfiguration();
+        int period = configuration.getLoopPeriod();
         
-        // Instantiate the input - this covers the joysticks and control board.
-        this.input = new Input();
-        
-        // The motors and wheels and stuff.
-        this.driveBase = new DriveBase(this);
+        // Shared by both loops. The black box thread is woken up to save what
+        // has been recorded.
+        Runnable telemetry = new Runnable()
+        {
+            public void run()
+            {
+                robot.getRecorder().requestFlush();
+            }
+        };
         
-        // Just in case there's something we need to generally do. Not currently
-        // used.
-        this.enable();
+        // Every so often, tell the drivers how long each part of the loop is
+        // taking. The profiler also reports overruns as they happen.
+        Runnable timing = new Runnable()
+        {
+            public void run()
+            {
+                robot.getProfiler().report();
+            }
+        };
         
-        // Feedback to confirm that the robot has finished initialising
-        this.feedback("Initialising done");
-    }
-    
-    /**
-     * Not currently used. Gets called at the start of each mode.
-     */
-    public void enable() 
-    {
+        // Runs the autonomous logic every loop period, rather than as fast as
+        // it can.
+        this.autonomousLoop = new ControlLoop(this.robot.getHardware(), period,
+                configuration.getLoopBudget());
+        this.autonomousLoop.add("autonomous", new Runnable() 
+        {
+            public void run() 
+            {
+                robot.autonomousTick();
+            }
+        }, period, true);
+        this.autonomousLoop.add("telemetry", telemetry, configuration.getTelemetryPeriod(), false);
+        this.autonomousLoop.add("timing", timing, configuration.getLoopSummaryPeriod(), false);
+        this.autonomousLoop.setProfiler(this.robot.getProfiler());
+        
+        // Teleop drives more often than it does everything else.
+        this.teleopLoop = new ControlLoop(this.robot.getHardware(),
+                configuration.getDrivePeriod(), configuration.getLoopBudget());
+        this.teleopLoop.add("drive", new Runnable() 
+        {
+            public void run() 
+            {
+                robot.teleopDriveTick();
+            }
+        }, configuration.getDrivePeriod(), true);
+        this.teleopLoop.add("mechanisms", new Runnable() 
+        {
+            public void run() 
+            {
+                robot.teleopMechanismTick();
+            }
+        }, period, true);
+        this.teleopLoop.add("telemetry", telemetry, configuration.getTelemetryPeriod(), false);
+        this.teleopLoop.add("timing", timing, configuration.getLoopSummaryPeriod(), false);
+        this.teleopLoop.setProfiler(this.robot.getProfiler());
     }
     
     /**
@@ -78,33 +113,18 @@ public class RobotMain extends SimpleRobot
      */
     public void autonomous() 
     {
-        // Just in case we need this later.
-        this.enable();
-        
-        // Start the compressor.
-        this.compressor.start();
+        this.robot.startAutonomous();
         
-        // Feedback to the console, letting the user know where we are.
-        this.feedback("Entering autonomous");
+        // Keep going until autonomous has finished, or the mode ends.
+        this.autonomousLoop.start();
         
-        // This drives forward at half speed for 1.5 second.
-        // Changing the value will change the length of time it drives for.
-        this.driveBase.driveForward(4);
-        
-        // Shoot the ball. If it hasn't had the BAS lowered, it won't shoot.
-        // Accordingly, we keep trying until it does. (The BAS should start
-        // lowering automagically).
-        boolean shotBall = false;
-        while (!shotBall)
+        while (this.isAutonomous() && this.isEnabled() 
+                && this.robot.isAutonomousFinished() == false)
         {
-            shotBall = this.catapult.shoot();
+            this.autonomousLoop.tick();
         }
         
-        // Things to do when ending teleop mode
-        this.compressor.stop();     // Stop the compressor
-        
-        // Feedback to the console
-        this.feedback("Exited autonomous");
+        this.robot.endAutonomous();
     }
     
     /**
@@ -112,89 +132,40 @@ public class RobotMain extends SimpleRobot
      */
     public void operatorControl() 
     {
-        this.enable();
+        this.robot.startTeleop();
         
-        // Inform the console that this is under operator control
-        this.feedback("Entering teleop");
+        // Keep looking while under operator control. The control loop runs
+        // each half of the teleop tick at its own rate.
+        this.teleopLoop.start();
         
-        // Start the compressor.
-        this.compressor.start();
+        while (this.isOperatorControl() && this.isEnabled()) 
+        {
+            this.teleopLoop.tick();
+        }
+        
+        // Report how well the loop kept time.
+        this.robot.feedback(this.teleopLoop.getSummary());
         
-        // Keep looking while under operator control.
-        while (this.isOperatorControl()) 
+        for (int i = 0; i < this.teleopLoop.getTaskCount(); i++)
         {
-            // Drive based on joystick control.
-            this.driveBase.Drive();
-            
-            // Various possible user inputs
-            try
-            {
-                // Note that the "else" matters - this is to make sure
-                // that only one thing can happen at a time.
-                
-                if (this.input.lowerBAS() == true)
-                {
-                    this.feedback("Lowering the BAS");
-                    this.bas.lower();
-                }
-                
-                else if (this.input.raiseBAS() == true)
-                {
-                    this.feedback("Raising the BAS");
-                    this.bas.raise();
-                }
-                
-                else if (this.input.shoot() == true)
-                {
-                    this.feedback("Shooting the ball");
-                    this.catapult.shoot();
-                }
-                
-                else if (this.input.lowerCatapult() == true)
-                {
-                    this.feedback("Lowering the catapult");
-                    this.catapult.lower();
-                }
-                
-                else if (this.input.dropBall() == true)
-                {
-                    this.feedback("Dropping the ball");
-                    this.bas.dropBall();
-                }
-                
-                else if (this.input.retrieveBall() == true)
-                {
-                    this.feedback("Retrieving the ball");
-                    this.bas.fetchBall();;
-                }
-                
-                // If it isn't clear that we want the ball retrieval motor 
-                // running, it should be stopped.
-                else if (this.input.retrieveBall() == false && this.input.dropBall() == false)
-                {
-                    this.bas.stop();
-                }
-                
-                // These should be left commented out They are for debugging,
-                // and let the console know the status of reed switches on the
-                // pistons.
-                //if (this.bas.isLowered()) this.feedback("BAS down");
-                //if (this.bas.isRaised()) this.feedback("BAS up");
-                //if (this.catapult.isLowered()) this.feedback("Catapult down");
-            }
-            catch (EnhancedIOException e)
-            {
-                this.feedback("*** ERROR \n" + e.getMessage());
-            }
-            
+            this.robot.feedback(this.teleopLoop.getTaskSummary(i));
         }
         
-        // Things to do when ending teleop mode
-     
-        this.compressor.stop();     // Stop the compressor
+        this.robot.feedback("Sensor reads per tick: " 
+                + this.robot.getSensors().getReadsLastTick());
+        this.robot.feedback(this.robot.getOutputs().getSummary());
+        this.robot.getProfiler().report();
         
-        // Inform the console that this has exited operator control
-        this.feedback("Exited teleop");
+        this.robot.endTeleop();
+    }
+    
+    /**
+     * Disabled - between matches, or before one starts. This is a good time
+     * to pick up any changes to the configuration file.
+     */
+    public void disabled()
+    {
+        this.robot.reloadConfiguration();
     }
     
     /**
@@ -202,107 +173,53 @@ public class RobotMain extends SimpleRobot
      */
     public void test() 
     {
-        this.enable();
+        this.robot.enable();
         
         // Feedback to the console
-        this.feedback("Entering test");
+        this.robot.feedback("Entering test");
         
-        this.compressor.start();
+        this.robot.getCompressor().start();
         
-        this.bas.lower();
+        this.robot.getSensors().sample();
+        this.robot.getBAS().lower();
         
         try
         {
-            while (this.input.raiseBAS() == false)
+            this.robot.getInput().update();
+            
+            while (this.robot.getInput().raiseBAS() == false)
             {
-                this.feedback("Compressor loading");
+                this.robot.feedback("Compressor loading");
+                this.robot.getInput().update();
+                
+                // Keep the sensors up to date, so the BAS is timed.
+                this.robot.getSensors().sample();
+                this.robot.getBAS().update();
             }
-            this.bas.raise();
+            this.robot.getSensors().sample();
+            this.robot.getBAS().raise();
         }
-        catch (EnhancedIOException ie)
+        catch (IOException ie)
         {
-            this.feedback("*** ERROR\n" + ie.getMessage());
+            this.robot.feedback("*** ERROR\n" + ie.getMessage());
         }
         
-        this.compressor.stop();
+        this.robot.getCompressor().stop();
+        
+        // How long the pistons have been taking, this run and in the matches
+        // before it.
+        this.robot.reportPistonTimes();
         
         // Feedback to the console
-        this.feedback("Exited test");
-    }
-    
-    // Accessors
-    
-    /**
-     * Returns a reference to the robot's input (manages joysticks, etc).
-     * @return Input
-     */
-    public Input getInput()
-    {
-        return this.input;
+        this.robot.feedback("Exited test");
     }
     
     /**
-     * Returns a reference to the robot's drive base.
-     * @return Input
+     * Returns a reference to the robot.
+     * @return Robot
      */
-    public DriveBase getDriveBase()
+    public Robot getRobot()
     {
-        return this.driveBase;
-    }
-    
-    /**
-     * Returns a reference to the robot's catapult.
-     * @return Catapult
-     */
-    public Catapult getCatapult()
-    {
-        return this.catapult;
-    }
-    
-    /**
-     * Returns a reference to the robot's Ball Acquisition System (BAS).
-     * @return Compressor
-     */
-    public BallAcquisitionSystem getBAS()
-    {
-        return this.bas;
-    }
-    
-    /**
-     * Returns a reference to the robot's air compressor.
-     * @return Compressor
-     */
-    public Compressor getCompressor()
-    {
-        return this.compressor;
-    }
-    
-    /**
-     * Returns a reference to the configuration manager.
-     * @return Compressor
-     */
-    public Configuration getConfiguration()
-    {
-        return this.configuration;
-    }
-    
-    /**
-     * Simple feedback class - sends a message to the Driver Station, and 
-     * if provideFeedback is on, to the console.
-     */
-    public void feedback(String message)
-    {
-        // Clear the screen
-        DriverStationLCD.getInstance().clear();
-        
-        // Output the message
-        DriverStationLCD.getInstance().println(DriverStationLCD.Line.kUser1, 2, message);
-        
-        // Send a duplicate message to the console
-        if (this.provideFeedback) System.out.println(message);
-        
-        // Update the screen
-        DriverStationLCD.getInstance().updateLCD();
+        return this.robot;
     }
- 
 }
@@ -0,0 +1,320 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * SensorSnapshot reads every digital input once per control loop and keeps 
+ * the results as bits in a single int. The subsystems ask the snapshot rather
+ * than the reed switches themselves, so each switch is only read once per 
+ * loop, and every decision made in that loop sees the same values.
+ * 
+ * Each sensor is added once, when its subsystem is set up, and gets a mask 
+ * with its own bit set. sample() must be called at the start of each loop.
+ * 
+ * Reed switches bounce, and ours have been flaky, so the values are
+ * debounced. Each sensor keeps its last 32 readings as bits in an int, newest
+ * in bit 0. A sensor only changes once the last few readings (the debounce
+ * samples in the configuration) all agree; until then it keeps its old value.
+ * The raw readings are still available, and are what the black box records.
+ * 
+ * The snapshot also looks for sensors that can't be right:
+ *   - two sensors that should never both be on (such as the BAS raised and 
+ *     lowered switches) both being on
+ *   - a sensor that should have changed after a solenoid was switched (see 
+ *     expect()) and didn't
+ * Either one marks the sensor as faulty, and it stays that way until the 
+ * robot restarts. Subsystems check isHealthy() before trusting a sensor, and
+ * go by time instead if it is faulty.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class SensorSnapshot 
+{
+    // One bit per sensor, so no more than 32.
+    public static final int MAX_SENSORS = 32;
+    
+    // Pairs of sensors that should never both be on.
+    private static final int MAX_EXCLUSIVE = 8;
+    
+    private Robot robot;                // Reference to the main robot class
+    
+    private Hardware.DigitalSensor[] sensors = new Hardware.DigitalSensor[MAX_SENSORS];
+    private String[] names = new String[MAX_SENSORS];
+    private int sensorCount = 0;
+    
+    private int state = 0;              // Bit n is the debounced value of sensor n
+    private int rawState = 0;           // Bit n is what sensor n just read
+    private int[] history = new int[MAX_SENSORS]; // Recent readings, newest in bit 0
+    
+    // Fault detection
+    private int[] exclusive = new int[MAX_EXCLUSIVE]; // Masks of both sensors
+    private int exclusiveCount = 0;
+    private int expecting = 0;          // Sensors waiting to change
+    private int expectedState = 0;      // What they should change to
+    private long[] deadline = new long[MAX_SENSORS]; // When they must by (us)
+    private int faults = 0;             // Sensors that can't be trusted
+    
+    private int readsLastTick = 0;      // Sensor reads between the last two samples
+    private long totalReads = 0;        // Sensor reads since startup
+    private long samples = 0;           // Number of calls to sample()
+    
+    /**
+     * Constructor.
+     * @param robot the main robot class
+     */
+    public SensorSnapshot(Robot robot)
+    {
+        this.robot = robot;
+    }
+    
+    /**
+     * Adds a sensor to the snapshot.
+     * @param sensor the sensor to read each loop
+     * @param name what to call it in the feedback
+     * @return the mask for the sensor, to be passed to isSet()
+     */
+    public int add(Hardware.DigitalSensor sensor, String name)
+    {
+        if (this.sensorCount >= MAX_SENSORS)
+        {
+            throw new IllegalStateException("Too many sensors");
+        }
+        
+        this.sensors[this.sensorCount] = sensor;
+        this.names[this.sensorCount] = name;
+        
+        return 1 << this.sensorCount++;
+    }
+    
+    /**
+     * Says that two sensors should never both be on. If they are, both are
+     * marked as faulty.
+     * @param mask1 the mask of one sensor
+     * @param mask2 the mask of the other
+     */
+    public void addExclusive(int mask1, int mask2)
+    {
+        if (this.exclusiveCount >= MAX_EXCLUSIVE)
+        {
+            throw new IllegalStateException("Too many exclusive sensors");
+        }
+        
+        this.exclusive[this.exclusiveCount++] = mask1 | mask2;
+    }
+    
+    /**
+     * Reads every sensor, once. Call this at the start of each control loop.
+     */
+    public void sample()
+    {
+        // Every read of a sensor since the last sample, in here or anywhere
+        // else, as counted by the output stage. So this is one tick's reads.
+        this.readsLastTick = this.robot.getOutputs().takeReads();
+        this.totalReads += this.readsLastTick;
+        
+        int newRawState = 0;
+        
+        for (int i = 0; i < this.sensorCount; i++)
+        {
+            if (this.sensors[i].get())
+            {
+                newRawState |= (1 << i);
+            }
+        }
+        
+        this.rawState = newRawState;
+        this.debounce();
+        this.checkFaults();
+        
+        this.samples++;
+    }
+    
+    /**
+     * Adds the new readings to each sensor's history, and changes the
+     * debounced value of any sensor whose last few readings all agree.
+     */
+    private void debounce()
+    {
+        int count = Math.max(1, Math.min(31, 
+                this.robot.getConfiguration().getSensorDebounceSamples()));
+        int window = (1 << count) - 1;
+        
+        for (int i = 0; i < this.sensorCount; i++)
+        {
+            int bit = 1 << i;
+            int reading = ((this.rawState & bit) != 0) ? 1 : 0;
+            
+            // Nothing to go on yet, so believe the first reading.
+            if (this.samples == 0)
+            {
+                this.history[i] = (reading == 1) ? -1 : 0;
+            }
+            else
+            {
+                this.history[i] = (this.history[i] << 1) | reading;
+            }
+            
+            if ((this.history[i] & window) == window)
+            {
+                this.state |= bit;
+            }
+            else if ((this.history[i] & window) == 0)
+            {
+                this.state &= ~bit;
+            }
+        }
+    }
+    
+    /**
+     * Looks for sensors that can't be right.
+     */
+    private void checkFaults()
+    {
+        for (int p = 0; p < this.exclusiveCount; p++)
+        {
+            if ((this.state & this.exclusive[p]) == this.exclusive[p])
+            {
+                this.fault(this.exclusive[p], "both on");
+            }
+        }
+        
+        if (this.expecting == 0)
+        {
+            return;
+        }
+        
+        // Anything that has changed the way it should can stop waiting.
+        this.expecting &= this.state ^ this.expectedState;
+        
+        long now = this.robot.getHardware().getTime();
+        
+        for (int i = 0; i < this.sensorCount; i++)
+        {
+            if ((this.expecting & (1 << i)) != 0 && now >= this.deadline[i])
+            {
+                this.fault(1 << i, "didn't change");
+            }
+        }
+    }
+    
+    /**
+     * Marks sensors as faulty, and lets the drivers know. Sensors that are
+     * already faulty are left alone.
+     * @param mask the sensors
+     * @param reason what was wrong
+     */
+    private void fault(int mask, String reason)
+    {
+        mask &= ~this.faults;
+        this.faults |= mask;
+        this.expecting &= ~mask;
+        
+        for (int i = 0; i < this.sensorCount; i++)
+        {
+            if ((mask & (1 << i)) != 0)
+            {
+                this.robot.feedback("Sensor fault: " + this.names[i] + " " + reason);
+            }
+        }
+    }
+    
+    /**
+     * Says that a sensor should have a value within a certain time - for 
+     * example, after a solenoid has been switched on. If it doesn't, it is
+     * marked as faulty. Nothing happens if it already has the value, is
+     * already waiting for it, or is faulty. This can be called every loop.
+     * @param mask the mask of the sensor
+     * @param value the value it should get to
+     * @param timeout how long it has, in milliseconds
+     */
+    public void expect(int mask, boolean value, int timeout)
+    {
+        int expected = value ? mask : 0;
+        
+        if ((this.faults & mask) != 0 || (this.state & mask) == expected
+                || ((this.expecting & mask) != 0 && (this.expectedState & mask) == expected))
+        {
+            return;
+        }
+        
+        for (int i = 0; i < this.sensorCount; i++)
+        {
+            if ((mask & (1 << i)) != 0)
+            {
+                this.deadline[i] = this.robot.getHardware().getTime() + timeout * 1000L;
+            }
+        }
+        
+        this.expecting |= mask;
+        this.expectedState = (this.expectedState & ~mask) | expected;
+    }
+    
+    /**
+     * Returns the value of a sensor, as of the last sample().
+     * @param mask the mask returned when the sensor was added
+     * @return true if the sensor was on
+     */
+    public boolean isSet(int mask)
+    {
+        return (this.state & mask) != 0;
+    }
+    
+    /**
+     * Returns what a sensor actually read at the last sample(), before 
+     * debouncing. Only use this for timing - decisions should use isSet().
+     * @param mask the mask returned when the sensor was added
+     * @return true if the sensor was on
+     */
+    public boolean isRawSet(int mask)
+    {
+        return (this.rawState & mask) != 0;
+    }
+    
+    /**
+     * Checks several sensors at once.
+     * @param mask the masks of the sensors to check, or'ed together
+     * @param expected the values they should have, as bits in the same places
+     * @return true if every sensor in the mask matches
+     */
+    public boolean matches(int mask, int expected)
+    {
+        return (this.state & mask) == expected;
+    }
+    
+    /**
+     * Returns whether sensors can be trusted.
+     * @param mask the masks of the sensors to check, or'ed together
+     * @return true if none of them are faulty
+     */
+    public boolean isHealthy(int mask)
+    {
+        return (this.faults & mask) == 0;
+    }
+    
+    /**
+     * Returns one of the sensors. Sensor n is the one whose mask is 1 << n.
+     * It comes through the output stage, which counts the reads.
+     * @param index the sensor number
+     * @return the sensor
+     */
+    public Hardware.DigitalSensor getSensor(int index)
+    {
+        return this.sensors[index];
+    }
+    
+    // Accessors
+    public int getSensorCount() { return this.sensorCount; }
+    public String getName(int index) { return this.names[index]; }
+    public int getState() { return this.state; }
+    public int getRawState() { return this.rawState; }
+    public int getFaults() { return this.faults; }
+    public int getReadsLastTick() { return this.readsLastTick; }
+    public long getTotalReads() { return this.totalReads; }
+    public long getSamples() { return this.samples; }
+}
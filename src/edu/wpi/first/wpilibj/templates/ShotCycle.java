@@ -0,0 +1,200 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * The shot cycle does the whole pick up, settle, fire and reload sequence from
+ * one button. In teleop, holding the shoot button for longer than the button
+ * hold time starts it, and it keeps going (one ball after another) until the
+ * button is let go.
+ * 
+ * Each cycle goes FETCH (BAS down, roller on) -> SETTLE (roller off, let the
+ * ball settle into the catapult) -> FIRE (shoot as soon as the catapult is
+ * ready). Fetching the next ball starts while the catapult is still coming
+ * back in from the last shot, rather than waiting for it. Everything is gated
+ * on the reed switches - the roller only starts once the BAS says it is
+ * lowered, and the catapult only fires once it says it is ready.
+ * 
+ * The time between shots is logged, so we can see how quickly the drivers
+ * can score.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class ShotCycle
+{
+    // States
+    public static final int IDLE = 0;       // Not running
+    public static final int FETCH = 1;      // Picking up the ball
+    public static final int SETTLE = 2;     // Letting it settle
+    public static final int FIRE = 3;       // Waiting to shoot
+    
+    private Robot robot;                    // Reference to the main robot class
+    
+    private int state = IDLE;               // Where the cycle is up to
+    private long stateTime = 0;             // When it got there (us)
+    private long fetchTime = -1;            // When the roller started (us)
+    private long cycleStart = 0;            // When this cycle started (us)
+    
+    private int shots = 0;                  // Shots fired by the cycle
+    private long lastCycleTime = 0;         // Time taken by the last shot (us)
+    private long totalCycleTime = 0;        // Added up, for the average (us)
+    
+    /**
+     * Constructor.
+     * @param robot the main robot class
+     */
+    public ShotCycle(Robot robot)
+    {
+        this.robot = robot;
+    }
+    
+    /**
+     * Starts the cycle, with fetching a ball.
+     */
+    public void start()
+    {
+        long now = this.robot.getHardware().getTime();
+        
+        this.cycleStart = now;
+        this.setState(FETCH, now);
+    }
+    
+    /**
+     * Stops the cycle, and the roller with it. The catapult retracts by
+     * itself if it has just fired.
+     */
+    public void stop()
+    {
+        if (this.state != IDLE)
+        {
+            this.robot.getBAS().stop();
+            this.state = IDLE;
+        }
+    }
+    
+    /**
+     * Moves the cycle along. Call this once per control loop while it is
+     * running.
+     */
+    public void update()
+    {
+        BallAcquisitionSystem bas = this.robot.getBAS();
+        Catapult catapult = this.robot.getCatapult();
+        Configuration configuration = this.robot.getConfiguration();
+        long now = this.robot.getHardware().getTime();
+        
+        switch (this.state)
+        {
+            // Get the BAS down and the roller going. The roller waits until
+            // the catapult has stopped firing, but doesn't wait for it to be
+            // all the way back in.
+            case FETCH:
+                if (catapult.getState() == Catapult.FIRING)
+                {
+                    bas.lower();
+                }
+                else
+                {
+                    bas.fetchBall();
+                    
+                    if (bas.isLowered() && this.fetchTime < 0)
+                    {
+                        this.fetchTime = now;
+                    }
+                }
+                
+                if (this.fetchTime >= 0
+                        && now - this.fetchTime >= configuration.getShotCycleFetchTime() * 1000L)
+                {
+                    bas.stop();
+                    this.setState(SETTLE, now);
+                }
+                break;
+            
+            // Give the ball a moment to stop rolling around.
+            case SETTLE:
+                bas.lower();
+                
+                if (now - this.stateTime >= configuration.getShotCycleSettleTime() * 1000L)
+                {
+                    this.setState(FIRE, now);
+                }
+                break;
+            
+            // Shoot as soon as the catapult will let us, then start on the
+            // next ball straight away.
+            case FIRE:
+                if (catapult.shoot())
+                {
+                    this.recordShot(catapult.getFireTime());
+                    this.setState(FETCH, now);
+                }
+                break;
+            
+            default:
+                break;
+        }
+    }
+    
+    /**
+     * Moves to a new state.
+     * @param state the new state
+     * @param now the current time (us)
+     */
+    private void setState(int state, long now)
+    {
+        this.state = state;
+        this.stateTime = now;
+        
+        if (state == FETCH)
+        {
+            this.fetchTime = -1;
+        }
+    }
+    
+    /**
+     * Records how long the shot took, and lets the drivers know.
+     * @param fireTime when the catapult fired (us)
+     */
+    private void recordShot(long fireTime)
+    {
+        this.lastCycleTime = fireTime - this.cycleStart;
+        this.totalCycleTime += this.lastCycleTime;
+        this.shots++;
+        this.cycleStart = fireTime;
+        
+        this.robot.feedback("Shot " + this.shots + ": cycle "
+                + (this.lastCycleTime / 1000) + "ms");
+    }
+    
+    /**
+     * Returns the number of shots and the average time between them.
+     * @return the summary
+     */
+    public String getSummary()
+    {
+        return "Shot cycle: " + this.shots + " shots, average "
+                + (this.getAverageCycleTime() / 1000) + "ms";
+    }
+    
+    /**
+     * Returns the average time each shot took.
+     * @return the time in microseconds, or 0 if nothing has been shot
+     */
+    public long getAverageCycleTime()
+    {
+        return (this.shots == 0) ? 0 : this.totalCycleTime / this.shots;
+    }
+    
+    // Accessors
+    public boolean isRunning() { return this.state != IDLE; }
+    public int getState() { return this.state; }
+    public int getShots() { return this.shots; }
+    public long getLastCycleTime() { return this.lastCycleTime; }
+}
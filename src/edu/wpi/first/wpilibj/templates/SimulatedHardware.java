@@ -0,0 +1,408 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Pretend hardware, so that the robot code can be run on a computer. Nothing 
+ * here touches the FPGA - the parts just remember what they were set to.
+ * 
+ * Time only moves when advance() is called, so the simulation can be run as
+ * fast as the computer allows. Pistons added with addPiston() move while their
+ * solenoids are on, and flip their reed switches when they reach the end of 
+ * their travel, which is what the BAS and catapult code rely on. Encoders 
+ * linked to a motor with linkEncoder() count as if the motor was turning a
+ * wheel.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class SimulatedHardware implements Hardware
+{
+    // Number of channels of each type. Channels start at 1, so slot 0 is 
+    // never used.
+    private static final int DIGITAL_CHANNELS = 15;
+    private static final int SOLENOID_CHANNELS = 9;
+    private static final int PWM_CHANNELS = 11;
+    private static final int JOYSTICK_PORTS = 5;
+    private static final int MAX_PISTONS = 8;
+    
+    private SimulatedDigitalInput[] digitalInputs = new SimulatedDigitalInput[DIGITAL_CHANNELS];
+    private SimulatedSolenoid[] solenoids = new SimulatedSolenoid[SOLENOID_CHANNELS];
+    private SimulatedMotor[] motors = new SimulatedMotor[PWM_CHANNELS];
+    private SimulatedJoystick[] joysticks = new SimulatedJoystick[JOYSTICK_PORTS];
+    private SimulatedEncoder[] encoders = new SimulatedEncoder[DIGITAL_CHANNELS];
+    private SimulatedCompressor compressor = new SimulatedCompressor();
+    
+    private SimulatedPiston[] pistons = new SimulatedPiston[MAX_PISTONS];
+    private int pistonCount = 0;
+    
+    private long time = 0;              // Current time, in microseconds
+    private String[] display = new String[DISPLAY_LINES]; // What the LCD shows
+    private Hashtable files = new Hashtable(); // Files written, by name
+    
+    /**
+     * A reed switch (or any other digital input). Can be set by the test, or 
+     * by a piston.
+     */
+    public static class SimulatedDigitalInput implements DigitalSensor
+    {
+        private boolean value = false;
+        
+        public boolean get() { return this.value; }
+        public void setValue(boolean value) { this.value = value; }
+    }
+    
+    /**
+     * A solenoid. Just remembers whether it is on.
+     */
+    public static class SimulatedSolenoid implements SolenoidOutput
+    {
+        private boolean on = false;
+        
+        public void set(boolean on) { this.on = on; }
+        public boolean get() { return this.on; }
+    }
+    
+    /**
+     * A Victor or Talon. Just remembers the speed it was set to.
+     */
+    public static class SimulatedMotor implements MotorOutput
+    {
+        private double speed = 0.0;
+        
+        public void set(double speed) { this.speed = speed; }
+        public double get() { return this.speed; }
+    }
+    
+    /**
+     * A joystick. The axes and buttons are set by whatever is running the
+     * simulation.
+     */
+    public static class SimulatedJoystick implements JoystickInput
+    {
+        private double[] axes = new double[Input.AXES_PER_JOYSTICK + 1];
+        private int buttons = 0;        // Bit (n - 1) is button n
+        
+        public double getRawAxis(int axis) { return this.axes[axis]; }
+        public int getButtons() { return this.buttons; }
+        
+        public void setRawAxis(int axis, double value) { this.axes[axis] = value; }
+        public void setX(double x) { this.axes[Input.X_AXIS] = x; }
+        public void setY(double y) { this.axes[Input.Y_AXIS] = y; }
+        public void setButtons(int buttons) { this.buttons = buttons; }
+        
+        public void setButton(int button, boolean pressed)
+        {
+            if (pressed)
+            {
+                this.buttons |= (1 << (button - 1));
+            }
+            else
+            {
+                this.buttons &= ~(1 << (button - 1));
+            }
+        }
+    }
+    
+    /**
+     * The compressor. There is no tank, so the pressure switch only trips if
+     * it is set.
+     */
+    public static class SimulatedCompressor implements CompressorOutput
+    {
+        private boolean running = false;
+        private SimulatedDigitalInput pressureSwitch = new SimulatedDigitalInput();
+        
+        public void start() { this.running = true; }
+        public void stop() { this.running = false; }
+        public boolean enabled() { return this.running; }
+        public DigitalSensor getPressureSwitch() { return this.pressureSwitch; }
+    }
+    
+    /**
+     * An encoder. If it has been linked to a motor, it counts at a rate 
+     * that follows the motor's speed. The wheel takes a little while to get
+     * up to speed (a simple lag), so there is something for a PID to do.
+     */
+    public static class SimulatedEncoder implements EncoderInput
+    {
+        // Time for the wheel to get most of the way to a new speed (us).
+        private static final double LAG = 200000.0;
+        
+        private double count = 0.0;
+        private boolean reverse = false;
+        private SimulatedMotor motor;           // May be null
+        private double countsPerSecond;         // At full power
+        private double speed = 0.0;             // Fraction of full speed
+        
+        public int get() { return (int) this.count; }
+        public void reset() { this.count = 0.0; }
+        public void setCount(int count) { this.count = count; }
+        
+        /**
+         * Turns the wheel.
+         * @param elapsed time since the last update, in microseconds
+         */
+        private void update(long elapsed)
+        {
+            if (this.motor == null)
+            {
+                return;
+            }
+            
+            this.speed += (this.motor.get() - this.speed) * Math.min(1.0, elapsed / LAG);
+            this.count += (this.reverse ? -1 : 1) * this.speed * this.countsPerSecond * elapsed / 1000000.0;
+        }
+    }
+    
+    /**
+     * A piston with a reed switch at each end. It moves towards extended 
+     * while the extend solenoid is on, and towards retracted while the retract
+     * solenoid is on. Pistons with a single solenoid (no retract solenoid) 
+     * retract whenever the extend solenoid is off.
+     */
+    private static class SimulatedPiston
+    {
+        private SimulatedSolenoid extend;
+        private SimulatedSolenoid retract;           // May be null
+        private SimulatedDigitalInput extendedSwitch; // May be null
+        private SimulatedDigitalInput retractedSwitch;// May be null
+        private long travelTime;                     // Time to go end to end
+        private long position;                       // 0 is retracted
+        
+        /**
+         * Moves the piston along and updates the reed switches.
+         * @param elapsed time since the last update, in microseconds
+         */
+        private void update(long elapsed)
+        {
+            boolean extending = this.extend.get() 
+                    && (this.retract == null || this.retract.get() == false);
+            boolean retracting = (this.retract == null) 
+                    ? this.extend.get() == false 
+                    : (this.retract.get() && this.extend.get() == false);
+            
+            if (extending)
+            {
+                this.position = Math.min(this.travelTime, this.position + elapsed);
+            }
+            else if (retracting)
+            {
+                this.position = Math.max(0, this.position - elapsed);
+            }
+            
+            if (this.extendedSwitch != null)
+            {
+                this.extendedSwitch.setValue(this.position >= this.travelTime);
+            }
+            
+            if (this.retractedSwitch != null)
+            {
+                this.retractedSwitch.setValue(this.position <= 0);
+            }
+        }
+    }
+    
+    public DigitalSensor createDigitalInput(int channel)
+    {
+        return this.getDigitalInput(channel);
+    }
+    
+    public SolenoidOutput createSolenoid(int channel)
+    {
+        return this.getSolenoid(channel);
+    }
+    
+    public MotorOutput createVictor(int channel)
+    {
+        return this.getMotor(channel);
+    }
+    
+    public MotorOutput createTalon(int channel)
+    {
+        return this.getMotor(channel);
+    }
+    
+    public JoystickInput createJoystick(int port)
+    {
+        return this.getJoystick(port);
+    }
+    
+    public CompressorOutput createCompressor(int pressureSwitchChannel, int relayChannel)
+    {
+        return this.compressor;
+    }
+    
+    public EncoderInput createEncoder(int aChannel, int bChannel, boolean reverse)
+    {
+        SimulatedEncoder encoder = this.getEncoder(aChannel);
+        encoder.reverse = reverse;
+        return encoder;
+    }
+    
+    public ControlBoardInput getControlBoard()
+    {
+        return null;
+    }
+    
+    public long getTime()
+    {
+        return this.time;
+    }
+    
+    public void display(String[] lines)
+    {
+        System.arraycopy(lines, 0, this.display, 0, DISPLAY_LINES);
+    }
+    
+    public OutputStream openOutputFile(String name)
+    {
+        // Files are just kept in memory.
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        this.files.put(name, file);
+        return file;
+    }
+    
+    public InputStream openInputFile(String name) throws IOException
+    {
+        ByteArrayOutputStream file = (ByteArrayOutputStream) this.files.get(name);
+        
+        if (file == null)
+        {
+            throw new IOException("No such file: " + name);
+        }
+        
+        return new ByteArrayInputStream(file.toByteArray());
+    }
+    
+    /**
+     * Returns what has been written to a file.
+     * @param name the name of the file
+     * @return the contents, or null if it hasn't been opened
+     */
+    public byte[] getFileContents(String name)
+    {
+        ByteArrayOutputStream file = (ByteArrayOutputStream) this.files.get(name);
+        
+        return (file == null) ? null : file.toByteArray();
+    }
+    
+    /**
+     * Adds a piston. The reed switches are set straight away to match the 
+     * starting position.
+     * @param extendChannel solenoid that extends the piston
+     * @param retractChannel solenoid that retracts it, or 0 if it retracts 
+     * when the extend solenoid is off
+     * @param extendedChannel reed switch that is on when extended, or 0
+     * @param retractedChannel reed switch that is on when retracted, or 0
+     * @param travelTime time to go from one end to the other, in microseconds
+     * @param extended true if the piston starts extended
+     */
+    public void addPiston(int extendChannel, int retractChannel, int extendedChannel, 
+            int retractedChannel, long travelTime, boolean extended)
+    {
+        SimulatedPiston piston = new SimulatedPiston();
+        piston.extend = this.getSolenoid(extendChannel);
+        piston.retract = (retractChannel > 0) ? this.getSolenoid(retractChannel) : null;
+        piston.extendedSwitch = (extendedChannel > 0) ? this.getDigitalInput(extendedChannel) : null;
+        piston.retractedSwitch = (retractedChannel > 0) ? this.getDigitalInput(retractedChannel) : null;
+        piston.travelTime = travelTime;
+        piston.position = extended ? travelTime : 0;
+        piston.update(0);
+        
+        this.pistons[this.pistonCount++] = piston;
+    }
+    
+    /**
+     * Links an encoder to a motor, so that it counts when the motor runs.
+     * @param aChannel the encoder's first channel
+     * @param motorChannel the motor that turns it
+     * @param countsPerSecond how fast it counts at full power
+     */
+    public void linkEncoder(int aChannel, int motorChannel, double countsPerSecond)
+    {
+        SimulatedEncoder encoder = this.getEncoder(aChannel);
+        encoder.motor = this.getMotor(motorChannel);
+        encoder.countsPerSecond = countsPerSecond;
+    }
+    
+    /**
+     * Moves time forward, moving any pistons that are powered.
+     * @param elapsed the time to move forward, in microseconds
+     */
+    public void advance(long elapsed)
+    {
+        this.time += elapsed;
+        
+        for (int i = 0; i < this.pistonCount; i++)
+        {
+            this.pistons[i].update(elapsed);
+        }
+        
+        for (int i = 0; i < DIGITAL_CHANNELS; i++)
+        {
+            if (this.encoders[i] != null)
+            {
+                this.encoders[i].update(elapsed);
+            }
+        }
+    }
+    
+    // Accessors. These create the part if nothing has asked for it yet.
+    
+    public SimulatedDigitalInput getDigitalInput(int channel)
+    {
+        if (this.digitalInputs[channel] == null)
+        {
+            this.digitalInputs[channel] = new SimulatedDigitalInput();
+        }
+        return this.digitalInputs[channel];
+    }
+    
+    public SimulatedSolenoid getSolenoid(int channel)
+    {
+        if (this.solenoids[channel] == null)
+        {
+            this.solenoids[channel] = new SimulatedSolenoid();
+        }
+        return this.solenoids[channel];
+    }
+    
+    public SimulatedMotor getMotor(int channel)
+    {
+        if (this.motors[channel] == null)
+        {
+            this.motors[channel] = new SimulatedMotor();
+        }
+        return this.motors[channel];
+    }
+    
+    public SimulatedJoystick getJoystick(int port)
+    {
+        if (this.joysticks[port] == null)
+        {
+            this.joysticks[port] = new SimulatedJoystick();
+        }
+        return this.joysticks[port];
+    }
+    
+    public SimulatedEncoder getEncoder(int aChannel)
+    {
+        if (this.encoders[aChannel] == null)
+        {
+            this.encoders[aChannel] = new SimulatedEncoder();
+        }
+        return this.encoders[aChannel];
+    }
+    
+    public SimulatedCompressor getCompressor() { return this.compressor; }
+    public String getDisplayLine(int line) { return this.display[line]; }
+}
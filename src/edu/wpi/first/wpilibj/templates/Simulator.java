@@ -0,0 +1,183 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+/**
+ * Simulator runs the robot logic against SimulatedHardware, without a robot.
+ * Time is moved forward by one loop period after each tick, rather than 
+ * waiting for it to pass, so a whole match runs in a fraction of a second. 
+ * 
+ * The pistons are wired up the same way as on the robot: the BAS piston is
+ * extended (raised) by the "up" solenoid and retracted (lowered) by the "down"
+ * one, and the catapult piston fires while its solenoid is on and springs back
+ * when it is off.
+ * 
+ * Running main() plays through a match with a simple scripted driver and 
+ * reports how much faster than real time it went. It doesn't use the WPILib
+ * classes at all, so it runs on any computer with Java.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class Simulator 
+{
+    // Time for each piston to go from one end to the other (microseconds).
+    public static final long BAS_TRAVEL_TIME = 500000;
+    public static final long CATAPULT_TRAVEL_TIME = 300000;
+    
+    // How fast the drive encoders count at full power (about 3 metres a 
+    // second).
+    public static final double ENCODER_COUNTS_PER_SECOND = 2250.0;
+    
+    // Length of each part of a match (microseconds).
+    public static final long AUTONOMOUS_TIME = 10000000;
+    public static final long TELEOP_TIME = 140000000;
+    
+    // Button numbers on the control joystick. These match Input.
+    private static final int SHOOT_BUTTON = 1;
+    private static final int RETRIEVE_BALL_BUTTON = 2;
+    private static final int LOWER_CATAPULT_BUTTON = 4;
+    
+    // Name of the black box file in the simulated hardware.
+    public static final String TELEMETRY_FILE = "blackbox.bin";
+    
+    private SimulatedHardware hardware; // The pretend electronics
+    private Robot robot;                // The robot logic being run
+    private long period;                // Loop period (microseconds)
+    private long ticks = 0;             // Number of ticks run so far
+    
+    /**
+     * Constructor. Sets up the simulated hardware and the robot.
+     */
+    public Simulator()
+    {
+        this.hardware = new SimulatedHardware();
+        
+        // The pistons need to be in place before the robot reads the reed
+        // switches, so grab the ports from a Configuration of our own.
+        Configuration configuration = new Configuration();
+        
+        // The BAS starts upright (raised), the catapult retracted.
+        this.hardware.addPiston(configuration.getBASUp(), configuration.getBASDown(),
+                configuration.getBASRaised(), configuration.getBASLowered(),
+                BAS_TRAVEL_TIME, true);
+        this.hardware.addPiston(configuration.getCatapultPneumatics(), 0,
+                0, configuration.getCatapultReloaded(),
+                CATAPULT_TRAVEL_TIME, false);
+        
+        // Each drive encoder is turned by the first motor on its side.
+        this.hardware.linkEncoder(configuration.getLeftEncoderA(), 
+                configuration.getLeftDriveMotor1(), ENCODER_COUNTS_PER_SECOND);
+        this.hardware.linkEncoder(configuration.getRightEncoderA(), 
+                configuration.getRightDriveMotor1(), ENCODER_COUNTS_PER_SECOND);
+        
+        this.robot = new Robot(this.hardware);
+        this.robot.setProvideFeedback(false);
+        
+        // Record the match, the same as on the robot. The file is kept in
+        // memory by the simulated hardware.
+        this.robot.getRecorder().open(TELEMETRY_FILE);
+        
+        this.period = this.robot.getConfiguration().getLoopPeriod() * 1000L;
+    }
+    
+    /**
+     * Runs autonomous until it finishes or the time runs out.
+     * @param duration the length of autonomous, in microseconds
+     */
+    public void runAutonomous(long duration)
+    {
+        long endTime = this.hardware.getTime() + duration;
+        
+        this.robot.startAutonomous();
+        
+        while (this.hardware.getTime() < endTime && this.robot.isAutonomousFinished() == false)
+        {
+            this.robot.autonomousTick();
+            this.step();
+        }
+        
+        this.robot.endAutonomous();
+        this.robot.getLogger().drain();
+        this.robot.getRecorder().drain(true);
+    }
+    
+    /**
+     * Runs teleop with a simple scripted driver: drive forward, pick up a 
+     * ball, shoot it and lower the catapult, over and over.
+     * @param duration the length of teleop, in microseconds
+     */
+    public void runTeleop(long duration)
+    {
+        long startTime = this.hardware.getTime();
+        long endTime = startTime + duration;
+        
+        SimulatedHardware.SimulatedJoystick left = this.hardware.getJoystick(1);
+        SimulatedHardware.SimulatedJoystick right = this.hardware.getJoystick(2);
+        SimulatedHardware.SimulatedJoystick control = this.hardware.getJoystick(3);
+        
+        this.robot.startTeleop();
+        
+        while (this.hardware.getTime() < endTime)
+        {
+            // One cycle every 10 seconds: 4 seconds picking up, 1 shooting, 
+            // 1 lowering the catapult and 4 just driving.
+            long cycle = ((this.hardware.getTime() - startTime) / 1000000) % 10;
+            
+            left.setY(-0.6);
+            right.setY(-0.6);
+            control.setButton(RETRIEVE_BALL_BUTTON, cycle < 4);
+            control.setButton(SHOOT_BUTTON, cycle == 4);
+            control.setButton(LOWER_CATAPULT_BUTTON, cycle == 5);
+            
+            this.robot.teleopTick();
+            this.step();
+        }
+        
+        this.robot.endTeleop();
+        this.robot.getLogger().drain();
+        this.robot.getRecorder().drain(true);
+    }
+    
+    /**
+     * Moves time forward by one loop period. There are no feedback or 
+     * telemetry threads in the simulator, so their work is done here.
+     */
+    public void step()
+    {
+        this.robot.getLogger().drain();
+        this.robot.getRecorder().drain(false);
+        this.hardware.advance(this.period);
+        this.ticks++;
+    }
+    
+    // Accessors
+    public SimulatedHardware getHardware() { return this.hardware; }
+    public Robot getRobot() { return this.robot; }
+    public long getTicks() { return this.ticks; }
+    
+    /**
+     * Plays through a match and reports how long it took.
+     * @param args not used
+     */
+    public static void main(String[] args)
+    {
+        Simulator simulator = new Simulator();
+        
+        long startTime = System.currentTimeMillis();
+        
+        simulator.runAutonomous(AUTONOMOUS_TIME);
+        simulator.runTeleop(TELEOP_TIME);
+        
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        long simulated = simulator.getHardware().getTime() / 1000;
+        
+        System.out.println("Simulated " + simulated + "ms (" + simulator.getTicks() 
+                + " ticks) in " + elapsed + "ms, " + (simulated / elapsed) + "x real time");
+    }
+}
@@ -0,0 +1,219 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * TelemetryDecoder turns a black box file written by TelemetryRecorder back
+ * into text - one line of comma separated values per record, with a heading
+ * line first. Copy the file off the cRIO with FTP, and decode it on a 
+ * computer with DecodeTelemetry (in the desktop folder, as it uses files).
+ * 
+ * Each configuration recorded in the file is printed where it was swapped
+ * in, as lines starting with #.
+ * 
+ * A record cut short at the end of the file, e.g. because the robot was 
+ * turned off part way through writing it, is ignored.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class TelemetryDecoder 
+{
+    /**
+     * Decodes a black box file.
+     * @param in the file
+     * @param out where to print the text
+     * @return the number of records decoded
+     * @throws IOException if the file is damaged or can't be read
+     */
+    public static int decode(InputStream in, PrintStream out) throws IOException
+    {
+        DataInputStream data = new DataInputStream(in);
+        
+        if (data.readInt() != TelemetryRecorder.MAGIC)
+        {
+            throw new IOException("Not a telemetry file");
+        }
+        
+        if (data.readInt() != TelemetryRecorder.RECORD_SIZE)
+        {
+            throw new IOException("Unknown record size");
+        }
+        
+        out.println("time,sequence,"
+                + "leftX,leftY,leftZ,rightX,rightY,rightZ,controlX,controlY,controlZ,"
+                + "leftButtons,rightButtons,controlButtons,sensors,leftCount,rightCount,"
+                + "leftDrive,rightDrive,roller,basLower,basRaise,catapult,"
+                + "compressor,pressureSwitch,mode,basMove,catapultMove");
+        
+        // Each record is read whole, and then split into its fields.
+        byte[] record = new byte[TelemetryRecorder.RECORD_SIZE];
+        ByteArrayInputStream recordStream = new ByteArrayInputStream(record);
+        DataInputStream fields = new DataInputStream(recordStream);
+        int records = 0;
+        
+        while (readRecord(data, record))
+        {
+            recordStream.reset();
+            StringBuffer line = new StringBuffer();
+            long time = fields.readLong();
+            
+            if (time == TelemetryRecorder.CONFIGURATION)
+            {
+                byte[] text = readConfiguration(data, fields);
+                
+                if (text == null)
+                {
+                    break;
+                }
+                
+                printConfiguration(text, out);
+                continue;
+            }
+            
+            line.append(time).append(',');
+            line.append(fields.readInt());
+            
+            for (int i = 0; i < Input.JOYSTICKS * TelemetryRecorder.AXES; i++)
+            {
+                line.append(',').append(fields.readShort() / 32767.0);
+            }
+            
+            for (int i = 0; i < Input.JOYSTICKS; i++)
+            {
+                line.append(',').append(fields.readShort() & 0xFFFF);
+            }
+            
+            line.append(',').append(fields.readInt());
+            line.append(',').append(fields.readInt());
+            line.append(',').append(fields.readInt());
+            
+            for (int i = 0; i < 3; i++)
+            {
+                line.append(',').append(fields.readShort() / 32767.0);
+            }
+            
+            int solenoids = fields.readByte();
+            line.append(',').append(solenoids & 1);
+            line.append(',').append((solenoids >> 1) & 1);
+            line.append(',').append((solenoids >> 2) & 1);
+            
+            int status = fields.readByte();
+            line.append(',').append(status & 1);
+            line.append(',').append((status >> 1) & 1);
+            line.append(',').append(((status >> 4) & 0xF) == TelemetryRecorder.AUTONOMOUS ? "auto" : "teleop");
+            
+            line.append(',').append(fields.readShort());
+            line.append(',').append(fields.readShort());
+            
+            out.println(line.toString());
+            records++;
+        }
+        
+        return records;
+    }
+    
+    /**
+     * Prints a recorded configuration file, with each line starting with #.
+     * @param text the file
+     * @param out where to print it
+     */
+    private static void printConfiguration(byte[] text, PrintStream out)
+    {
+        out.println("# Configuration (" + text.length + " bytes)");
+        StringBuffer line = new StringBuffer("# ");
+        
+        for (int i = 0; i < text.length; i++)
+        {
+            if (text[i] == '\n')
+            {
+                out.println(line.toString());
+                line.setLength(2);
+            }
+            else if (text[i] != '\r')
+            {
+                line.append((char) (text[i] & 0xFF));
+            }
+        }
+        
+        if (line.length() > 2)
+        {
+            out.println(line.toString());
+        }
+    }
+    
+    /**
+     * Reads a configuration file recorded in a black box file. Call this 
+     * once the first record has been read, and the CONFIGURATION marker at 
+     * the start of it taken off; the rest is read from the file.
+     * @param data the file
+     * @param fields the first record, just after the marker
+     * @return the configuration file, or null if the black box file ends 
+     * part way through it
+     * @throws IOException if the file is damaged or can't be read
+     */
+    public static byte[] readConfiguration(DataInputStream data, DataInputStream fields) 
+            throws IOException
+    {
+        int length = fields.readInt();
+        
+        if (length < 0)
+        {
+            throw new IOException("Damaged configuration");
+        }
+        
+        byte[] text = new byte[length];
+        int first = Math.min(length, TelemetryRecorder.RECORD_SIZE 
+                - TelemetryRecorder.CONFIGURATION_HEADER);
+        int size = TelemetryRecorder.CONFIGURATION_HEADER + length;
+        int padding = (TelemetryRecorder.RECORD_SIZE - size % TelemetryRecorder.RECORD_SIZE) 
+                % TelemetryRecorder.RECORD_SIZE;
+        
+        fields.readFully(text, 0, first);
+        
+        try
+        {
+            data.readFully(text, first, length - first);
+            
+            // Only the last record has padding, and only if it went on to
+            // another record.
+            for (int i = 0; i < padding && length > first; i++)
+            {
+                data.readByte();
+            }
+        }
+        catch (EOFException e)
+        {
+            return null;
+        }
+        
+        return text;
+    }
+    
+    /**
+     * Reads the next record from a black box file.
+     * @param data the file, after the header
+     * @param record where to put the record (RECORD_SIZE bytes)
+     * @return true if a whole record was read, false at the end of the file
+     * @throws IOException if the file can't be read
+     */
+    public static boolean readRecord(DataInputStream data, byte[] record) throws IOException
+    {
+        try
+        {
+            data.readFully(record);
+            return true;
+        }
+        catch (EOFException e)
+        {
+            return false;
+        }
+    }
+}
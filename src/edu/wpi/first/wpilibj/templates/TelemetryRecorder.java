@@ -0,0 +1,413 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import java.io.*;
+
+/**
+ * TelemetryRecorder is the robot's black box. Every control loop, record() 
+ * writes one fixed size record of what the robot could see and what it did:
+ * the joysticks, the reed switches, the drive encoders, the motors, the 
+ * solenoids and the compressor. 
+ * 
+ * Records go into a ring buffer that is set up once, so recording doesn't 
+ * allocate anything. A low priority thread writes them out to a file in large
+ * blocks. If the file can't keep up, new records are dropped (and counted)
+ * rather than making the control loop wait. The sequence number in each 
+ * record shows where any gaps are.
+ * 
+ * The file starts with a header (MAGIC, then RECORD_SIZE, both ints), 
+ * followed by the records. TelemetryDecoder turns a file back into text. 
+ * 
+ * Before the first tick, and again whenever a reloaded configuration is 
+ * swapped in, the configuration file is recorded, so MatchReplay can run the
+ * robot with the same settings. It takes up as many records as it needs: 
+ * the first starts with CONFIGURATION (a long) in place of the time, then 
+ * the length of the file in bytes (an int), then the file itself, carrying 
+ * on into the following records and padded out with zeros.
+ * 
+ * Every other record is one tick, and is, in order (all big-endian, as 
+ * written by DataOutputStream):
+ * 
+ *   long   time the tick started, in microseconds
+ *   int    sequence number
+ *   short  axes, 3 per joystick (left, right, control), scaled by 32767
+ *   short  buttons, 1 per joystick
+ *   int    reed switches and the pressure switch, as SensorSnapshot bits 
+ *          (raw, before debouncing)
+ *   int    left and right drive encoder counts, as last read this tick
+ *   short  left drive, right drive and roller power, scaled by 32767
+ *   byte   solenoids: bit 0 BAS lower, 1 BAS raise, 2 catapult
+ *   byte   status: bit 0 compressor running, bit 1 pressure switch, and
+ *          the mode (AUTONOMOUS or TELEOP) in the top four bits
+ *   short  BAS and catapult piston moves that finished this loop, in 
+ *          milliseconds (0 if none). The solenoid bits say which way.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class TelemetryRecorder implements Runnable
+{
+    // File header
+    public static final int MAGIC = 0x44445532;   // "DDU2"
+    public static final int RECORD_SIZE = 60;
+    
+    // In place of the time, marks the start of a configuration.
+    public static final long CONFIGURATION = -1L;
+    
+    // Bytes at the start of a configuration before the file: the marker and
+    // the length.
+    public static final int CONFIGURATION_HEADER = 12;
+    
+    // Modes
+    public static final byte AUTONOMOUS = 1;
+    public static final byte TELEOP = 2;
+    
+    // Number of axes recorded for each joystick.
+    public static final int AXES = Input.AXES_PER_JOYSTICK;
+    
+    private Robot robot;                // Reference to the main robot class
+    
+    private byte[] buffer;              // The ring buffer
+    private int capacity;               // Number of records it holds
+    private int blockRecords;           // Records to write at once
+    
+    // Records are numbered as they are written. Guarded by synchronizing on
+    // this, although only the indexes are changed under the lock.
+    private long written = 0;           // Records put in the buffer
+    private long saved = 0;             // Records written to the file
+    private long dropped = 0;           // Records lost because it was full
+    private int sequence = 0;           // Sequence number of the next record
+    
+    private OutputStream file;          // Where the records go
+    private Configuration recordedConfiguration; // The last one recorded
+    private boolean failed = false;     // Stop trying if the file breaks
+    private boolean flushRequested = false; // Write everything, not just blocks
+    
+    /**
+     * Constructor - sets up the ring buffer.
+     * @param robot the main robot class
+     * @param capacity the number of records the buffer can hold
+     * @param blockRecords the number of records to write to the file at once
+     */
+    public TelemetryRecorder(Robot robot, int capacity, int blockRecords)
+    {
+        this.robot = robot;
+        this.capacity = capacity;
+        this.blockRecords = blockRecords;
+        this.buffer = new byte[capacity * RECORD_SIZE];
+    }
+    
+    /**
+     * Opens the file and writes the header. Nothing is recorded until this 
+     * has been called.
+     * @param name the name of the file
+     */
+    public void open(String name)
+    {
+        try
+        {
+            this.open(this.robot.getHardware().openOutputFile(name));
+        }
+        catch (IOException e)
+        {
+            this.robot.feedback("*** Telemetry: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Writes the header to a stream that is already open, and records to it 
+     * from then on. The benchmarks use this to record to a stream that 
+     * doesn't keep anything.
+     * @param stream where the records go
+     * @throws IOException if the header can't be written
+     */
+    public void open(OutputStream stream) throws IOException
+    {
+        DataOutputStream header = new DataOutputStream(stream);
+        header.writeInt(MAGIC);
+        header.writeInt(RECORD_SIZE);
+        header.flush();
+        
+        this.file = stream;
+    }
+    
+    /**
+     * Starts the thread that writes to the file. It runs at the lowest 
+     * priority, so it only gets the CPU when the control loop is sleeping.
+     */
+    public void start()
+    {
+        Thread thread = new Thread(this);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+    
+    /**
+     * Records one control loop. Call this at the end of each tick, once the
+     * outputs have been set.
+     * @param mode AUTONOMOUS or TELEOP
+     */
+    public void record(byte mode)
+    {
+        if (this.file == null)
+        {
+            return;
+        }
+        
+        long slot;
+        
+        synchronized (this)
+        {
+            // If the robot has a different configuration to the last one 
+            // recorded, it goes first. If there isn't room for it, this tick
+            // is dropped too, so a tick is never recorded without the 
+            // configuration it ran with.
+            if ((this.robot.getConfiguration() != this.recordedConfiguration
+                    && this.recordConfiguration(this.robot.getConfiguration()) == false)
+                    || this.written - this.saved >= this.capacity)
+            {
+                this.dropped++;
+                this.sequence++;
+                return;
+            }
+            
+            slot = this.written;
+        }
+        
+        Input input = this.robot.getInput();
+        DriveBase driveBase = this.robot.getDriveBase();
+        BallAcquisitionSystem bas = this.robot.getBAS();
+        SensorSnapshot sensors = this.robot.getSensors();
+        Hardware.CompressorOutput compressor = this.robot.getCompressor();
+        int pressureSwitch = this.robot.getAirSupply().getPressureSwitch();
+        
+        int p = (int) (slot % this.capacity) * RECORD_SIZE;
+        
+        p = this.putLong(p, this.robot.getTickTime());
+        p = this.putInt(p, this.sequence++);
+        
+        for (int j = 0; j < Input.JOYSTICKS; j++)
+        {
+            for (int a = 1; a <= AXES; a++)
+            {
+                p = this.putScaled(p, input.getAxis(j, a));
+            }
+        }
+        
+        for (int j = 0; j < Input.JOYSTICKS; j++)
+        {
+            p = this.putShort(p, input.getButtons(j));
+        }
+        
+        // The raw readings, not the debounced ones, so a replay goes through
+        // the same debouncing.
+        p = this.putInt(p, sensors.getRawState());
+        p = this.putInt(p, driveBase.getLeftCount());
+        p = this.putInt(p, driveBase.getRightCount());
+        
+        p = this.putScaled(p, driveBase.getLeftOutput());
+        p = this.putScaled(p, driveBase.getRightOutput());
+        p = this.putScaled(p, bas.getRollerSpeed());
+        
+        this.buffer[p++] = (byte) ((bas.isLowerSolenoidOn() ? 1 : 0)
+                | (bas.isRaiseSolenoidOn() ? 2 : 0)
+                | (this.robot.getCatapult().isFiring() ? 4 : 0));
+        this.buffer[p++] = (byte) ((compressor.enabled() ? 1 : 0)
+                | (sensors.isRawSet(pressureSwitch) ? 2 : 0)
+                | (mode << 4));
+        
+        p = this.putShort(p, (int) (bas.getMoveLatency() / 1000));
+        p = this.putShort(p, (int) (this.robot.getCatapult().getMoveLatency() / 1000));
+        
+        synchronized (this)
+        {
+            this.written++;
+            
+            if (this.written - this.saved >= this.blockRecords)
+            {
+                this.notify();
+            }
+        }
+    }
+    
+    /**
+     * Records a configuration file, if there is room for it. Only called by
+     * record(), with the lock held. This copies the file into the buffer, 
+     * which is slow next to a tick, but it only happens when a configuration
+     * is swapped in.
+     * @param configuration the configuration
+     * @return true if it was recorded, false if there wasn't room
+     */
+    private boolean recordConfiguration(Configuration configuration)
+    {
+        byte[] text = configuration.getText();
+        int size = CONFIGURATION_HEADER + text.length;
+        int records = (size + RECORD_SIZE - 1) / RECORD_SIZE;
+        
+        if (records > this.capacity)
+        {
+            // It will never fit, so carry on without it. Replays will 
+            // mismatch, rather than the whole match not being recorded.
+            this.robot.feedback("*** Telemetry: configuration too big to record");
+            this.recordedConfiguration = configuration;
+            return true;
+        }
+        
+        if (this.written - this.saved + records > this.capacity)
+        {
+            return false;
+        }
+        
+        int p = (int) (this.written % this.capacity) * RECORD_SIZE;
+        p = this.putLong(p, CONFIGURATION);
+        this.putInt(p, text.length);
+        
+        // The file, then zeros to the end of the last record. Each record
+        // can be at either end of the ring buffer.
+        for (int n = CONFIGURATION_HEADER; n < records * RECORD_SIZE; n++)
+        {
+            p = (int) ((this.written + n / RECORD_SIZE) % this.capacity) * RECORD_SIZE 
+                    + n % RECORD_SIZE;
+            this.buffer[p] = (n < size) ? text[n - CONFIGURATION_HEADER] : 0;
+        }
+        
+        this.written += records;
+        this.recordedConfiguration = configuration;
+        
+        return true;
+    }
+    
+    /**
+     * The thread. Writes out each block as it fills up.
+     */
+    public void run()
+    {
+        while (this.failed == false)
+        {
+            boolean all;
+            
+            synchronized (this)
+            {
+                try
+                {
+                    while (this.written - this.saved < this.blockRecords 
+                            && this.flushRequested == false)
+                    {
+                        this.wait();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // Just go around again.
+                }
+                
+                all = this.flushRequested;
+                this.flushRequested = false;
+            }
+            
+            this.drain(all);
+        }
+    }
+    
+    /**
+     * Asks the thread to write out everything in the buffer, rather than 
+     * waiting for a whole block. Called at the end of each mode.
+     */
+    public synchronized void requestFlush()
+    {
+        this.flushRequested = true;
+        this.notify();
+    }
+    
+    /**
+     * Writes out the records in the buffer. This is only called by the 
+     * thread, or by the simulator, which doesn't have one. Normally only 
+     * whole blocks are written, but at the end of a mode everything can be
+     * flushed out.
+     * @param all true to write everything, not just whole blocks
+     */
+    public void drain(boolean all)
+    {
+        while (this.file != null && this.failed == false)
+        {
+            long start;
+            long available;
+            
+            synchronized (this)
+            {
+                start = this.saved;
+                available = this.written - this.saved;
+            }
+            
+            if (available == 0 || (all == false && available < this.blockRecords))
+            {
+                break;
+            }
+            
+            // Write up to the end of the buffer in one go; anything that has
+            // wrapped around to the start goes next time around.
+            int first = (int) (start % this.capacity);
+            int records = (int) Math.min(available, this.capacity - first);
+            
+            try
+            {
+                this.file.write(this.buffer, first * RECORD_SIZE, records * RECORD_SIZE);
+                
+                if (all)
+                {
+                    this.file.flush();
+                }
+            }
+            catch (IOException e)
+            {
+                this.failed = true;
+                this.robot.feedback("*** Telemetry: " + e.getMessage());
+            }
+            
+            synchronized (this)
+            {
+                this.saved += records;
+            }
+        }
+    }
+    
+    // Big-endian encoders. Each returns the position after the value.
+    
+    private int putLong(int p, long value)
+    {
+        p = this.putInt(p, (int) (value >> 32));
+        return this.putInt(p, (int) value);
+    }
+    
+    private int putInt(int p, int value)
+    {
+        this.buffer[p] = (byte) (value >> 24);
+        this.buffer[p + 1] = (byte) (value >> 16);
+        this.buffer[p + 2] = (byte) (value >> 8);
+        this.buffer[p + 3] = (byte) value;
+        return p + 4;
+    }
+    
+    private int putShort(int p, int value)
+    {
+        this.buffer[p] = (byte) (value >> 8);
+        this.buffer[p + 1] = (byte) value;
+        return p + 2;
+    }
+    
+    private int putScaled(int p, double value)
+    {
+        return this.putShort(p, (int) (Math.max(-1.0, Math.min(1.0, value)) * 32767));
+    }
+    
+    // Accessors
+    public synchronized long getWritten() { return this.written; }
+    public synchronized long getSaved() { return this.saved; }
+    public synchronized long getDropped() { return this.dropped; }
+}
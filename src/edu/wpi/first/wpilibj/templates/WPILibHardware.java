@@ -0,0 +1,211 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) RoboRoos 2014. All Rights Reserved.                          */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package edu.wpi.first.wpilibj.templates;
+
+import com.sun.squawk.microedition.io.*;
+import edu.wpi.first.wpilibj.*;
+import java.io.*;
+import javax.microedition.io.*;
+
+/**
+ * The real hardware. Each part is a thin wrapper around the matching WPILib
+ * class, using the ports from Configuration.
+ * 
+ * @author adam.jenkins@unisa.edu.au
+ * @version 1.0
+ */
+public class WPILibHardware implements Hardware
+{
+    // How long the drive motors can go without an update before the motor 
+    // safety stops them. This is the same as RobotDrive used.
+    private static final double MOTOR_EXPIRATION = 0.1;
+    
+    // The LCD lines, from the top.
+    private static final DriverStationLCD.Line[] LCD_LINES = 
+    {
+        DriverStationLCD.Line.kUser1, DriverStationLCD.Line.kUser2, 
+        DriverStationLCD.Line.kUser3, DriverStationLCD.Line.kUser4, 
+        DriverStationLCD.Line.kUser5, DriverStationLCD.Line.kUser6
+    };
+    
+    public DigitalSensor createDigitalInput(int channel)
+    {
+        final DigitalInput input = new DigitalInput(channel);
+        
+        return new DigitalSensor()
+        {
+            public boolean get() { return input.get(); }
+        };
+    }
+    
+    public SolenoidOutput createSolenoid(int channel)
+    {
+        final Solenoid solenoid = new Solenoid(channel);
+        
+        return new SolenoidOutput()
+        {
+            public void set(boolean on) { solenoid.set(on); }
+            public boolean get() { return solenoid.get(); }
+        };
+    }
+    
+    public MotorOutput createVictor(int channel)
+    {
+        return this.wrap(new Victor(channel));
+    }
+    
+    public MotorOutput createTalon(int channel)
+    {
+        // The Talons drive the wheels. RobotDrive used to take care of the 
+        // motor safety for these, so turn it on for each Talon instead.
+        Talon talon = new Talon(channel);
+        talon.setExpiration(MOTOR_EXPIRATION);
+        talon.setSafetyEnabled(true);
+        
+        return this.wrap(talon);
+    }
+    
+    public JoystickInput createJoystick(final int port)
+    {
+        final Joystick joystick = new Joystick(port);
+        
+        return new JoystickInput()
+        {
+            public double getRawAxis(int axis) { return joystick.getRawAxis(axis); }
+            
+            // Joystick only hands out one button at a time, but the driver
+            // station keeps them all in one int, so ask it directly.
+            public int getButtons() { return DriverStation.getInstance().getStickButtons(port); }
+        };
+    }
+    
+    public CompressorOutput createCompressor(int pressureSwitchChannel, int relayChannel)
+    {
+        final Compressor compressor = new Compressor(pressureSwitchChannel, relayChannel);
+        
+        // The Compressor has the switch's DigitalInput, so it has to be read
+        // through it.
+        final DigitalSensor pressureSwitch = new DigitalSensor()
+        {
+            public boolean get() { return compressor.getPressureSwitchValue(); }
+        };
+        
+        return new CompressorOutput()
+        {
+            public void start() { compressor.start(); }
+            public void stop() { compressor.stop(); }
+            public boolean enabled() { return compressor.enabled(); }
+            public DigitalSensor getPressureSwitch() { return pressureSwitch; }
+        };
+    }
+    
+    public EncoderInput createEncoder(int aChannel, int bChannel, boolean reverse)
+    {
+        final Encoder encoder = new Encoder(aChannel, bChannel, reverse);
+        encoder.start();
+        
+        return new EncoderInput()
+        {
+            public int get() { return encoder.get(); }
+            public void reset() { encoder.reset(); }
+        };
+    }
+    
+    public ControlBoardInput getControlBoard()
+    {
+        final DriverStationEnhancedIO board = DriverStation.getInstance().getEnhancedIO();
+        
+        if (board == null)
+        {
+            return null;
+        }
+        
+        return new ControlBoardInput()
+        {
+            public boolean getDigital(int channel) throws IOException
+            {
+                // Keep the WPILib exception in here, like everything else.
+                try
+                {
+                    return board.getDigital(channel);
+                }
+                catch (DriverStationEnhancedIO.EnhancedIOException e)
+                {
+                    throw new IOException(e.getMessage());
+                }
+            }
+        };
+    }
+    
+    public long getTime()
+    {
+        return Utility.getFPGATime();
+    }
+    
+    public OutputStream openOutputFile(String name) throws IOException
+    {
+        // Files live in the root of the cRIO's flash, and can be copied off 
+        // with FTP.
+        FileConnection file = (FileConnection) Connector.open("file:///" + name, Connector.WRITE);
+        
+        if (file.exists())
+        {
+            file.delete();
+        }
+        file.create();
+        
+        return file.openOutputStream();
+    }
+    
+    public InputStream openInputFile(String name) throws IOException
+    {
+        FileConnection file = (FileConnection) Connector.open("file:///" + name, Connector.READ);
+        
+        if (file.exists() == false)
+        {
+            file.close();
+            throw new IOException("No such file: " + name);
+        }
+        
+        return file.openInputStream();
+    }
+    
+    public void display(String[] lines)
+    {
+        DriverStationLCD lcd = DriverStationLCD.getInstance();
+        
+        // Clear the screen
+        lcd.clear();
+        
+        // Output each line. WPILib cuts off anything too long.
+        for (int i = 0; i < DISPLAY_LINES; i++)
+        {
+            if (lines[i] != null)
+            {
+                lcd.println(LCD_LINES[i], 1, lines[i]);
+            }
+        }
+        
+        // Update the screen
+        lcd.updateLCD();
+    }
+    
+    /**
+     * Wraps up a WPILib speed controller.
+     * @param controller the Victor or Talon
+     * @return the wrapped controller
+     */
+    private MotorOutput wrap(final SpeedController controller)
+    {
+        return new MotorOutput()
+        {
+            public void set(double speed) { controller.set(speed); }
+            public double get() { return controller.get(); }
+        };
+    }
+}